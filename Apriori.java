@@ -12,7 +12,7 @@
  *   $ java mining.Apriori /tmp/data.dat 0.8
  *   $ java mining.Apriori /tmp/data.dat 0.8 > frequent-itemsets.txt
  *   
- * Usage as library: see {@link ExampleOfClientCodeOfApriori}
+ * Usage as library: see {@link #Apriori(String[], ItemsetSink)}
  * 
  * @author Martin Monperrus, University of Darmstadt, 2010
  * @author Nathan Magnus and Su Yibin, under the supervision of Howard Hamilton, University of Regina, June 2009.
@@ -21,57 +21,137 @@
  * and imposing this condition on any subsequent users.
  */
 
-import java.io.*;
+import java.io.IOException;
 import java.util.*; 
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
 
-public class Apriori extends Observable
+public class Apriori
 {
 //    public static void main(String[] args) throws Exception
 //    {
 //        Apriori ap = new Apriori(args);
 //    }
-	private List<Itemset> itmsts = new ArrayList<Itemset>();
+	/** receives the frequent itemsets, level by level */
+	private final ItemsetSink sink;
 
     /** the list of current itemsets */
     private List<int[]> itemsets ;
-    /** the name of the transcation file */
-    private String transaFile; 
     /** number of different items in the dataset */
     private int numItems; 
-    /** total number of transactions in transaFile */
+    /** total number of transactions */
     private int numTransactions; 
+    /** the transactions, each one sorted and without duplicates */
+    private Transactions transactions;
+    /** number of threads used to compute the support of the candidates (0 for as many as the available processors) */
+    private int numThreads;
+    /** the pool computing the support of the candidates, shard by shard */
+    private ForkJoinPool pool;
     /** minimum support for a frequent itemset in percentage, e.g. 0.8 */
     private double minSup; 
+    /** maximum number of items of a frequent itemset (0 for no limit) */
+    private int maxItemsetLength;
+    /** 
+     * approximate number of bytes the candidates of a level can take in memory (0 for no limit):
+     * the candidates exceeding it are spilled to disk, and counted in chunks that fit the budget
+     */
+    private long memoryBudget;
+    /** the candidates of the current level spilled to disk, null if they are all in itemsets */
+    private SpilledCandidates spilledCandidates;
     
     /** by default, Apriori is used with the command line interface */
     private boolean usedAsLibrary = false;
     
     private boolean showFrequentItemsets;
+    
+    /** 
+     * the candidates found infrequent, i.e. the itemsets that are not frequent while all their subsets are (negative border),
+     * with their supports; null if not requested
+     */
+    private List<Itemset> negativeBorder;
 
-    /** This is the main interface to use this class as a library */
-    public Apriori(String[] args, Observer ob) throws Exception
+    /** This is the main interface to use this class as a library: the frequent itemsets are sent to the sink as soon as they are found */
+    public Apriori(String[] args, ItemsetSink sink) throws Exception
     {
     	usedAsLibrary = true;
+    	this.sink = sink;
     	configure(args);
-    	this.addObserver(ob);
     	go();
     }
 
     /** generates the apriori itemsets from a file
      * 
-     * @param args configuration parameters: args[0] is a filename, args[1] the min support (e.g. 0.8 for 80%)
+     * @param args configuration parameters: args[0] is a filename, args[1] the min support (e.g. 0.8 for 80%),
+     * args[2] (optional) the number of threads counting the support of the candidates (by default, as many as the available processors),
+     * args[3] (optional) the maximum number of items of a frequent itemset (by default, no limit),
+     * args[4] (optional) the memory budget of the candidates of a level in megabytes (by default, no limit)
      */
     public Apriori(String[] args, boolean showFrequentItemsets) throws Exception
     {
     	this.showFrequentItemsets = showFrequentItemsets;
+    	sink = new ItemsetCollector();
         configure(args);
         go();
     }
     
+    /** generates the apriori itemsets from the rows of a table, without going through a transaction file
+     * 
+     * @param minSup the min support (e.g. 0.8 for 80%)
+     * @param numThreads the number of threads counting the support of the candidates (0 for as many as the available processors)
+     * @param maxItemsetLength the maximum number of items of a frequent itemset (0 for no limit)
+     * @param memoryBudget the approximate number of bytes the candidates of a level can take in memory, the others are spilled to disk (0 for no limit)
+     */
+    public Apriori(Table table, double minSup, int numThreads, int maxItemsetLength, long memoryBudget, boolean showFrequentItemsets) throws Exception
+    {
+    	this(table, minSup, numThreads, maxItemsetLength, memoryBudget, new ItemsetCollector(), showFrequentItemsets);
+    }
+    
+    /** generates the apriori itemsets from the rows of a table, sending them to the sink as soon as they are found (see {@link #Apriori(Table, double, int, int, long, boolean)}) */
+    public Apriori(Table table, double minSup, int numThreads, int maxItemsetLength, long memoryBudget, ItemsetSink sink, boolean showFrequentItemsets) throws Exception
+    {
+    	this(Transactions.fromTable(table), minSup, numThreads, maxItemsetLength, memoryBudget, false, sink, showFrequentItemsets);
+    }
+    
+    /** generates the apriori itemsets from the given transactions
+     * 
+     * @param minSup the min support (e.g. 0.8 for 80%)
+     * @param numThreads the number of threads counting the support of the candidates (0 for as many as the available processors)
+     * @param maxItemsetLength the maximum number of items of a frequent itemset (0 for no limit)
+     * @param memoryBudget the approximate number of bytes the candidates of a level can take in memory, the others are spilled to disk (0 for no limit)
+     * @param computeNegativeBorder if true, the negative border is kept as well (see {@link #getNegativeBorder()})
+     */
+    public Apriori(Transactions transactions, double minSup, int numThreads, int maxItemsetLength, long memoryBudget, boolean computeNegativeBorder, boolean showFrequentItemsets) throws Exception
+    {
+    	this(transactions, minSup, numThreads, maxItemsetLength, memoryBudget, computeNegativeBorder, new ItemsetCollector(), showFrequentItemsets);
+    }
+    
+    /** generates the apriori itemsets from the given transactions, sending them to the sink as soon as they are found (see {@link #Apriori(Transactions, double, int, int, long, boolean, boolean)}) */
+    public Apriori(Transactions transactions, double minSup, int numThreads, int maxItemsetLength, long memoryBudget, boolean computeNegativeBorder, ItemsetSink sink, boolean showFrequentItemsets) throws Exception
+    {
+    	this.showFrequentItemsets = showFrequentItemsets;
+    	this.sink = sink;
+    	
+    	if(computeNegativeBorder)
+    		negativeBorder = new ArrayList<Itemset>();
+    	
+    	configure(transactions, minSup, numThreads, maxItemsetLength, memoryBudget);
+    	go();
+    }
     
+    
+    /** returns the frequent itemsets, or null if they have been sent to a sink given to the constructor */
     public List<Itemset> getItemsets()
     {
-    	return itmsts;
+    	return sink instanceof ItemsetCollector ? ((ItemsetCollector) sink).getItemsets() : null;
+    }
+    
+    /** 
+     * returns the negative border, i.e. the infrequent itemsets whose subsets are all frequent, with their supports 
+     * (null if the negative border has not been requested); with a maximum itemset length, only the itemsets not longer than it
+     */
+    public List<Itemset> getNegativeBorder()
+    {
+    	return negativeBorder;
     }
 
     
@@ -81,25 +161,41 @@ public class Apriori extends Observable
         //start timer
         long start = System.currentTimeMillis();
 
+        pool = new ForkJoinPool(numThreads);
+        
         // first we generate the candidates of size 1
         createItemsetsOfSize1();        
         int itemsetNumber=1; //the current itemset being looked at
         int nbFrequentSets=0;
         
-        while (itemsets.size()>0)
+        try
         {
-
-            calculateFrequentItemsets();
-
-            if(itemsets.size()!=0)
-            {
-                nbFrequentSets+=itemsets.size();
-                if(showFrequentItemsets) log("Found "+itemsets.size()+" frequent itemsets of size " + itemsetNumber + " (with support "+(minSup*100)+"%)");;
-                createNewItemsetsFromPreviousOnes();
-            }
-
-            itemsetNumber++;
-        } 
+	        while (itemsets.size()>0 || spilledCandidates != null)
+	        {
+	
+	            calculateFrequentItemsets();
+	
+	            if(itemsets.size()!=0)
+	            {
+	                nbFrequentSets+=itemsets.size();
+	                if(showFrequentItemsets) log("Found "+itemsets.size()+" frequent itemsets of size " + itemsetNumber + " (with support "+(minSup*100)+"%)");;
+	                
+	                if(maxItemsetLength == 0 || itemsetNumber < maxItemsetLength)
+	                	createNewItemsetsFromPreviousOnes();
+	                else
+	                	itemsets = new ArrayList<int[]>(); // no larger itemsets are requested
+	            }
+	
+	            itemsetNumber++;
+	        } 
+        }
+        finally
+        {
+        	pool.shutdown();
+        	
+        	if(spilledCandidates != null)
+        		spilledCandidates.delete();
+        }
 
         //display the execution time
         long end = System.currentTimeMillis();
@@ -112,21 +208,11 @@ public class Apriori extends Observable
         }
     }
 
-    static int itemsetIndex = 0;
-    
     /** triggers actions if a frequent item set has been found  */
     private void foundFrequentItemSet(int[] itemset, int support)
     {
-    	if (usedAsLibrary)
-    	{
-            this.setChanged();
-            notifyObservers(itemset);
-    	}
-    	else
-    	{
-//    		System.out.println(Arrays.toString(itemset) + "  ("+ ((support / (double) numTransactions))+" "+support+")");
-    		itmsts.add(new Itemset(itemset, support, itemsetIndex++));
-    	}
+//    	System.out.println(Arrays.toString(itemset) + "  ("+ ((support / (double) numTransactions))+" "+support+")");
+    	sink.found(itemset, support);
     }
 
     /** outputs a message in Sys.err if not used as library */
@@ -136,11 +222,10 @@ public class Apriori extends Observable
     		System.err.println(message);
     }
 
-    /** computes numItems, numTransactions, and sets minSup */
+    /** loads the transactions of the file args[0], and sets minSup, numThreads, maxItemsetLength and memoryBudget */
     private void configure(String[] args) throws Exception
     {        
-        // setting transafile
-        transaFile = args[0];
+    	double minSup;
     	
     	// setting minsupport
     	if(args.length>=2)
@@ -148,31 +233,31 @@ public class Apriori extends Observable
     	else
     		minSup = .8;// by default
     	
-    	if (minSup>1 || minSup<0) throw new Exception("minSup: bad value");
+    	// setting the number of threads
+    	final int numThreads = args.length>=3 ? Integer.parseInt(args[2]) : 0;
     	
-    	// going thourgh the file to compute numItems and  numTransactions
-    	numItems = 0;
-    	numTransactions = 0;
-    	BufferedReader data_in = new BufferedReader(new FileReader(transaFile));
+    	// setting the limits on the itemsets length and on the memory
+    	final int maxItemsetLength = args.length>=4 ? Integer.parseInt(args[3]) : 0;
+    	final long memoryBudget = args.length>=5 ? Long.parseLong(args[4]) << 20 : 0;
     	
-    	while (data_in.ready())
-    	{    		
-    		String line=data_in.readLine();
-    		
-    		if(line.matches("\\s*")) continue; // be friendly with empty lines
-    		
-    		numTransactions++;
-    		StringTokenizer t = new StringTokenizer(line," ");
-    		
-    		while (t.hasMoreTokens())
-    		{
-    			int x = Integer.parseInt(t.nextToken());
-    			//log(x);
-    			if (x+1>numItems) numItems=x+1;
-    		}    		
-    	}  
+    	// going thourgh the file to load the transactions
+    	configure(Transactions.read(args[0]), minSup, numThreads, maxItemsetLength, memoryBudget);
+    }
+    
+    /** computes numItems, numTransactions, and sets minSup, numThreads, maxItemsetLength and memoryBudget */
+    private void configure(Transactions transactions, double minSup, int numThreads, int maxItemsetLength, long memoryBudget) throws Exception
+    {
+    	if (minSup>1 || minSup<0) throw new Exception("minSup: bad value");
+    	if (maxItemsetLength<0) throw new Exception("maxItemsetLength: bad value");
+    	if (memoryBudget<0) throw new Exception("memoryBudget: bad value");
     	
-    	data_in.close();
+    	this.minSup = minSup;
+    	this.numThreads = numThreads > 0 ? numThreads : Runtime.getRuntime().availableProcessors();
+    	this.maxItemsetLength = maxItemsetLength;
+    	this.memoryBudget = memoryBudget;
+    	this.transactions = transactions;
+    	numItems = transactions.getNumItems();
+    	numTransactions = transactions.size();
         outputConfig();
     }
 
@@ -185,6 +270,13 @@ public class Apriori extends Observable
 		{
 			 log("Input configuration: "+numItems+" items, "+numTransactions+" transactions, ");
 			 log("minsup = "+minSup+"%");
+			 log("threads = "+numThreads);
+			 
+			 if(maxItemsetLength > 0)
+				 log("max itemset length = "+maxItemsetLength);
+			 
+			 if(memoryBudget > 0)
+				 log("memory budget = "+memoryBudget+" bytes");
 		}
 	}
 
@@ -204,151 +296,283 @@ public class Apriori extends Observable
 			
     /**
      * if m is the size of the current itemsets,
-     * generate all possible itemsets of size n+1 from pairs of current itemsets
+     * generate all possible itemsets of size m+1 by joining the pairs of current itemsets
+     * sharing the first m-1 items, and prune the ones having an infrequent subset of size m
+     * or two values of the same single value attribute (their support is 0 by construction)
      * replaces the itemsets of itemsets by the new ones
+     * 
+     * itemsets are sorted arrays kept in lexicographic order, so that itemsets sharing a prefix are contiguous
+     * and the new itemsets are generated in lexicographic order as well;
+     * once they exceed the memory budget, the new itemsets are spilled to disk (see {@link SpilledCandidates})
      */
-    private void createNewItemsetsFromPreviousOnes()
+    private void createNewItemsetsFromPreviousOnes() throws IOException
     {
     	// by construction, all existing itemsets have the same size
     	int currentSizeOfItemsets = itemsets.get(0).length;
     	
     	if(showFrequentItemsets) 
     		log("Creating itemsets of size "+(currentSizeOfItemsets+1)+" based on "+itemsets.size()+" itemsets of size "+currentSizeOfItemsets);
-    		
-    	HashMap<String, int[]> tempCandidates = new HashMap<String, int[]>(); //temporary candidates
     	
-        // compare each pair of itemsets of size n-1
-        for(int i=0; i<itemsets.size(); i++)
-        {
-            for(int j=i+1; j<itemsets.size(); j++)
-            {
-                int[] X = itemsets.get(i);
-                int[] Y = itemsets.get(j);
-
-                assert (X.length==Y.length);
-                
-                //make a string of the first n-2 tokens of the strings
-                int [] newCand = new int[currentSizeOfItemsets+1];
-                
-                for(int s=0; s<newCand.length-1; s++)
-                	newCand[s] = X[s];
-                    
-                int ndifferent = 0;
-                // then we find the missing value
-                for(int s1=0; s1<Y.length; s1++)
-                {
-                	boolean found = false;
-                	// is Y[s1] in X?
-                    for(int s2=0; s2<X.length; s2++)
-                    {
-                    	if (X[s2]==Y[s1])
-                    	{ 
-                    		found = true;
-                    		break;
-                    	}
-                	}
-                    
-                	if(!found)// Y[s1] is not in X
-                	{ 
-                		ndifferent++;
-                		// we put the missing value at the end of newCand
-                		newCand[newCand.length -1] = Y[s1];
-                	}
-            	}
-                
-                // we have to find at least 1 different, otherwise it means that we have two times the same set in the existing candidates
-                assert(ndifferent>0);
-                
-                if(ndifferent == 1)
-                {
-                    // HashMap does not have the correct "equals" for int[] :-(
-                    // I have to create the hash myself using a String :-(
-                	// I use Arrays.toString to reuse equals and hashcode of String
-                	Arrays.sort(newCand);
-                	tempCandidates.put(Arrays.toString(newCand),newCand);
-                }
-            }
-        }
+    	final int[] frequentIndex = indexItemsets(itemsets);
+    	final List<int[]> candidates = new ArrayList<int[]>();
+    	int pruned = 0;
+    	int impossible = 0;
+    	// with minSup = 0 also the itemsets with support 0 are frequent
+    	final boolean pruneImpossible = minSup > 0;
+    	
+    	int groupStart = 0;
+    	
+    	while(groupStart < itemsets.size())
+    	{
+    		// [groupStart, groupEnd) are the itemsets sharing the first m-1 items
+    		int groupEnd = groupStart+1;
+    		
+    		while(groupEnd < itemsets.size() && samePrefix(itemsets.get(groupStart), itemsets.get(groupEnd)))
+    			groupEnd++;
+    		
+    		for(int i=groupStart; i<groupEnd; i++)
+    		{
+    			final int[] X = itemsets.get(i);
+    			
+    			for(int j=i+1; j<groupEnd; j++)
+    			{
+    				final int[] Y = itemsets.get(j);
+    				
+    				// X and Y are frequent, so only their last items can belong to the same single value attribute
+    				final boolean isImpossible = pruneImpossible && transactions.sameSingleValueAttribute(X[currentSizeOfItemsets-1], Y[currentSizeOfItemsets-1]);
+    				
+    				if(isImpossible && negativeBorder == null)
+    				{
+    					impossible++;
+    					continue;
+    				}
+    				
+    				final int[] newCand = Arrays.copyOf(X, currentSizeOfItemsets+1);
+    				newCand[currentSizeOfItemsets] = Y[currentSizeOfItemsets-1];
+    				
+    				// the subsets obtained by removing one of the last two items are X and Y,
+    				// the other ones must be frequent as well (downward closure)
+    				boolean allSubsetsFrequent = true;
+    				
+    				for(int skip=0; skip<currentSizeOfItemsets-1 && allSubsetsFrequent; skip++)
+    					allSubsetsFrequent = containsSubset(frequentIndex, newCand, skip);
+    				
+    				if(isImpossible)
+    				{
+    					// not counted, but still part of the negative border
+    					impossible++;
+    					
+    					if(allSubsetsFrequent)
+    						negativeBorder.add(new Itemset(newCand, 0, -1));
+    				}
+    				else
+    					if(allSubsetsFrequent)
+    						addCandidate(candidates, newCand);
+    					else
+    						pruned++;
+    			}
+    		}
+    		
+    		groupStart = groupEnd;
+    	}
         
         //set the new itemsets
-        itemsets = new ArrayList<int[]>(tempCandidates.values());
+        itemsets = candidates;
+        
+        if(showFrequentItemsets && spilledCandidates != null) 
+        	log("Spilled "+spilledCandidates.size()+" itemsets of size "+(currentSizeOfItemsets+1)+" to disk, as they exceed the memory budget");
         
         if(showFrequentItemsets) 
-        	log("Created "+itemsets.size()+" unique itemsets of size "+(currentSizeOfItemsets+1));
+        	log("Created "+(spilledCandidates != null ? spilledCandidates.size() : itemsets.size())+" unique itemsets of size "+(currentSizeOfItemsets+1)+" ("+pruned+" pruned as they have an infrequent subset, "+impossible+" as they have two values of the same single value attribute)");
 
     }
-
-
-
-    /** put "true" in trans[i] if the integer i is in line */
-    private void line2booleanArray(String line, boolean[] trans)
+    
+    
+    /** 
+     * adds the candidate to candidates, unless they would exceed the memory budget:
+     * in that case the candidates are moved to disk, and so are the following ones of the same level
+     */
+    private void addCandidate(final List<int[]> candidates, final int[] candidate) throws IOException
     {
-	    Arrays.fill(trans, false);
-	    StringTokenizer stFile = new StringTokenizer(line, " "); //read a line from the file to the tokenizer
-	    //put the contents of that line into the transaction array
-	    while (stFile.hasMoreTokens())
-	    {
-	        int parsedVal = Integer.parseInt(stFile.nextToken());
-			trans[parsedVal]=true; //if it is not a 0, assign the value to true
-	    }
+    	if(spilledCandidates == null && memoryBudget > 0 && (candidates.size()+1) * candidateBytes(candidate.length) > memoryBudget)
+    	{
+    		spilledCandidates = new SpilledCandidates(candidate.length);
+    		
+    		for(final int[] c : candidates)
+    			spilledCandidates.write(c);
+    		
+    		candidates.clear();
+    	}
+    	
+    	if(spilledCandidates != null)
+    		spilledCandidates.write(candidate);
+    	else
+    		candidates.add(candidate);
     }
-
     
+    
+    /** 
+     * rough estimate of the bytes taken by a candidate with the given number of items while its support is counted:
+     * the array of its items (and its reference), its leaf in the prefix trie with the entry of its parent's map
+     * (the inner nodes are shared by the candidates with the same prefix), and its counters in the shards counted at the same time
+     */
+    private long candidateBytes(final int length)
+    {
+    	return 24 + 4*length + 64 + 8*numThreads;
+    }
+    
+    
+    /** true if the two itemsets (of the same size m) share the first m-1 items */
+    private static boolean samePrefix(final int[] X, final int[] Y)
+    {
+    	for(int s=0; s<X.length-1; s++)
+    		if(X[s] != Y[s])
+    			return false;
+    	
+    	return true;
+    }
+    
+    
+    /** 
+     * builds an open addressing hash table over the itemsets: 
+     * each slot stores the position (+1) of an itemset in the list, 0 marks an empty slot 
+     */
+    private int[] indexItemsets(final List<int[]> itemsets)
+    {
+    	int capacity = 2;
+    	
+    	while(capacity < 2*itemsets.size())
+    		capacity <<= 1;
+    	
+    	final int[] slots = new int[capacity];
+    	final int mask = capacity-1;
+    	
+    	for(int i=0; i<itemsets.size(); i++)
+    	{
+    		int slot = hash(itemsets.get(i), -1) & mask;
+    		
+    		while(slots[slot] != 0)
+    			slot = (slot+1) & mask;
+    		
+    		slots[slot] = i+1;
+    	}
+    	
+    	return slots;
+    }
+    
+    
+    /** true if the subset of candidate obtained by removing the item in position skip is in the hash table */
+    private boolean containsSubset(final int[] slots, final int[] candidate, final int skip)
+    {
+    	final int mask = slots.length-1;
+    	int slot = hash(candidate, skip) & mask;
+    	
+    	while(slots[slot] != 0)
+    	{
+    		final int[] itemset = itemsets.get(slots[slot]-1);
+    		boolean equal = true;
+    		
+    		for(int s=0, c=0; s<itemset.length && equal; s++, c++)
+    		{
+    			if(c == skip)
+    				c++;
+    			
+    			equal = itemset[s] == candidate[c];
+    		}
+    		
+    		if(equal)
+    			return true;
+    		
+    		slot = (slot+1) & mask;
+    	}
+    	
+    	return false;
+    }
+    
+    
+    /** hash of the items of itemset, except the one in position skip (-1 to hash all the items) */
+    private static int hash(final int[] itemset, final int skip)
+    {
+    	int h = 1;
+    	
+    	for(int s=0; s<itemset.length; s++)
+    		if(s != skip)
+    			h = 31*h + itemset[s];
+    	
+    	// spread the bits, as the table size is a power of two
+    	h *= 0x9E3779B9;
+    	
+    	return h ^ (h >>> 16);
+    }
+
+
+
     /** passes through the data to measure the frequency of sets in {@link itemsets},
      *  then filters thoses who are under the minimum support (minSup)
+     *  
+     *  the candidates are indexed by a prefix trie (see {@link Node}), 
+     *  so that for each transaction only the candidates contained in it are visited;
+     *  the transactions are split into shards counted in parallel (see {@link SupportCount});
+     *  the candidates spilled to disk are read back and counted in chunks that fit the memory budget, one pass through the data per chunk
      */
     private void calculateFrequentItemsets() throws Exception
     {
-    	if(showFrequentItemsets) 
-    		log("Passing through the data to compute the frequency of " + itemsets.size()+ " itemsets of size "+itemsets.get(0).length);
-
         List<int[]> frequentCandidates = new ArrayList<int[]>(); //the frequent candidates for the current itemset
+        
+        if(spilledCandidates == null)
+        	calculateFrequentItemsets(itemsets, frequentCandidates);
+        else
+        {
+        	final int chunkSize = (int) Math.max(1, Math.min(Integer.MAX_VALUE, memoryBudget / candidateBytes(spilledCandidates.getLength())));
+        	
+        	if(showFrequentItemsets) 
+        		log("Reading the " + spilledCandidates.size() + " itemsets spilled to disk in chunks of " + chunkSize + " itemsets");
+        	
+        	List<int[]> chunk;
+        	
+        	while((chunk = spilledCandidates.read(chunkSize)).size() > 0)
+        		calculateFrequentItemsets(chunk, frequentCandidates);
+        	
+        	spilledCandidates.delete();
+        	spilledCandidates = null;
+        }
 
-        boolean match; //whether the transaction has all the items in an itemset
-        int count[] = new int[itemsets.size()]; //the number of successful matches, initialized by zeros
-
-		// load the transaction file
-		BufferedReader data_in = new BufferedReader(new InputStreamReader(new FileInputStream(transaFile)));
-
-		boolean[] trans = new boolean[numItems];
-		
-		// for each transaction
-		for (int i = 0; i < numTransactions; i++)
-		{
-			// boolean[] trans = extractEncoding1(data_in.readLine());
-			String line = data_in.readLine();
-			line2booleanArray(line, trans);
-
-			// check each candidate
-			for (int c = 0; c < itemsets.size(); c++)
-			{
-				match = true; // reset match to false
-				// tokenize the candidate so that we know what items need to be
-				// present for a match
-				int[] cand = itemsets.get(c);
-				//int[] cand = candidatesOptimized[c];
-				// check each item in the itemset to see if it is present in the
-				// transaction
-				for (int xx : cand)
-				{
-					if (trans[xx] == false)
-					{
-						match = false;
-						break;
-					}
-				}
-				
-				if(match) // if at this point it is a match, increase the count
-				{
-					count[c]++;
-					
-					if(showFrequentItemsets) 
-						log(Arrays.toString(cand)+" is contained in trans "+i+" ("+line+")");
-				}
-			}
-		}
-		
-		data_in.close();
+        //new candidates are only the frequent candidates
+        itemsets = frequentCandidates;
+    }
+    
+    
+    /** 
+     * measures the frequency of the candidates in a single pass through the data, and adds the frequent ones to frequentCandidates
+     * (the frequency of the single items is not measured if the transactions know the supports of their items)
+     */
+    private void calculateFrequentItemsets(final List<int[]> itemsets, final List<int[]> frequentCandidates) throws Exception
+    {
+        final int[] itemSupports = transactions.getItemSupports();
+        int count[]; //the number of successful matches
+        
+        if(itemsets.get(0).length == 1 && itemSupports != null)
+        {
+        	count = new int[itemsets.size()];
+        	
+        	for (int i = 0; i < itemsets.size(); i++)
+        		count[i] = itemSupports[itemsets.get(i)[0]];
+        }
+        else
+        {
+        	if(showFrequentItemsets) 
+        		log("Passing through the data to compute the frequency of " + itemsets.size()+ " itemsets of size "+itemsets.get(0).length);
+            
+            final Node candidates = new Node();
+            
+            for (int c = 0; c < itemsets.size(); c++)
+            	candidates.insert(itemsets.get(c), c);
+            
+            // about four shards per thread, to balance the load between threads
+            final int shardSize = Math.max(1024, numTransactions / (4*numThreads));
+            
+            count = pool.invoke(new SupportCount(candidates, itemsets.size(), 0, numTransactions, shardSize));
+        }
 
 		for (int i = 0; i < itemsets.size(); i++)
 		{
@@ -359,11 +583,62 @@ public class Apriori extends Observable
 				foundFrequentItemSet(itemsets.get(i),count[i]);
 				frequentCandidates.add(itemsets.get(i));
 			}
+			else
+				if(negativeBorder != null)
+					negativeBorder.add(new Itemset(itemsets.get(i), count[i], -1));
 			//else log("-- Remove candidate: "+ Arrays.toString(candidates.get(i)) + "  is: "+ ((count[i] / (double) numTransactions)));
 		}
+    }
+    
+    
+    /** 
+     * counts the support of the candidates in the transactions [from, to):
+     * ranges larger than a shard are split in two halves counted in parallel, 
+     * and the per-shard counts are summed up, so the result does not depend on the number of threads
+     */
+    private class SupportCount extends RecursiveTask<int[]>
+    {
+		private static final long serialVersionUID = 1L;
+		
+		private final Node candidates;
+    	private final int numCandidates;
+    	private final int from;
+    	private final int to;
+    	private final int shardSize;
+    	
+    	SupportCount(final Node candidates, final int numCandidates, final int from, final int to, final int shardSize)
+    	{
+    		this.candidates = candidates;
+    		this.numCandidates = numCandidates;
+    		this.from = from;
+    		this.to = to;
+    		this.shardSize = shardSize;
+    	}
 
-        //new candidates are only the frequent candidates
-        itemsets = frequentCandidates;
+		@Override
+		protected int[] compute()
+		{
+			if(to-from <= shardSize)
+			{
+				final int[] count = new int[numCandidates];
+				
+				for (int i = from; i < to; i++)
+					candidates.count(transactions.get(i), count);
+				
+				return count;
+			}
+			
+			final int middle = (from+to) >>> 1;
+			final SupportCount right = new SupportCount(candidates, numCandidates, middle, to, shardSize);
+			right.fork();
+			
+			final int[] count = new SupportCount(candidates, numCandidates, from, middle, shardSize).compute();
+			final int[] rightCount = right.join();
+			
+			for (int c = 0; c < numCandidates; c++)
+				count[c] += rightCount[c];
+			
+			return count;
+		}
     }
 }
-
@@ -0,0 +1,79 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/**
+ * Measures the speedup curve of {@link Apriori} by number of threads,
+ * and checks that each run finds the same itemsets, with the same supports, of the single thread run.
+ * 
+ * Usage: 
+ *   $ java AprioriSpeedup transactionsFile support [maxThreads] [repetitions]
+ *   $ java AprioriSpeedup transactional_table 0.05 32 3
+ */
+public class AprioriSpeedup
+{
+	public static void main(String[] args) throws Exception
+	{
+		final String transactionsFile = args[0];
+		final String support = args[1];
+		final int maxThreads = args.length>=3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+		final int repetitions = args.length>=4 ? Integer.parseInt(args[3]) : 3;
+		
+		final List<Integer> threads = new ArrayList<Integer>();
+		
+		for(int t=1; t<maxThreads; t*=2)
+			threads.add(t);
+		
+		threads.add(maxThreads);
+		
+		Map<String,Integer> sequential = null;
+		double sequentialTime = 0;
+		
+		// untimed run, to warm up the JIT before the first measure
+		new Apriori(new String[]{transactionsFile, support, maxThreads+""}, false);
+		
+		System.out.println("threads\ttime (s)\tspeedup\tsame itemsets");
+		
+		for(final int t : threads)
+		{
+			double best = Double.MAX_VALUE;
+			Map<String,Integer> itemsets = null;
+			
+			// best of the repetitions, to smooth out GC noise
+			for(int r=0; r<repetitions; r++)
+			{
+				final long start = System.nanoTime();
+				final Apriori apriori = new Apriori(new String[]{transactionsFile, support, t+""}, false);
+				final long end = System.nanoTime();
+				
+				best = Math.min(best, (end-start)/1e9);
+				itemsets = supports(apriori.getItemsets());
+			}
+			
+			if(sequential == null)
+			{
+				sequential = itemsets;
+				sequentialTime = best;
+			}
+			
+			System.out.println(t + "\t" + String.format("%.3f", best) + "\t" + String.format("%.2f", sequentialTime/best) + "\t" + itemsets.equals(sequential));
+		}
+	}
+	
+	/** maps each itemset (as a sorted list of items) to its support */
+	private static Map<String,Integer> supports(final List<Itemset> itemsets)
+	{
+		final Map<String,Integer> supports = new HashMap<String,Integer>();
+		
+		for(final Itemset itemset : itemsets)
+			supports.put(Arrays.toString(itemset.toArray()), itemset.getSupport());
+		
+		return supports;
+	}
+}
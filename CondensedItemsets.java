@@ -0,0 +1,75 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/**
+ * Condensed representations of a set of frequent itemsets:
+ *
+ *  - closed itemsets: the frequent itemsets having no superset with the same support.
+ *    The support of any other frequent itemset X can be derived from them, as the greatest support of a closed superset of X.
+ *  - maximal itemsets: the frequent itemsets having no frequent superset.
+ *    They identify all the frequent itemsets (their subsets), but not their supports.
+ *
+ * By the downward closure of the frequent itemsets, it is enough to compare each itemset with its supersets having one more item.
+ */
+public class CondensedItemsets
+{
+	/** returns the closed itemsets among the frequent itemsets */
+	public static List<Itemset> closed(final List<Itemset> frequentItemsets)
+	{
+		return condense(frequentItemsets, true);
+	}
+
+	/** returns the maximal itemsets among the frequent itemsets */
+	public static List<Itemset> maximal(final List<Itemset> frequentItemsets)
+	{
+		return condense(frequentItemsets, false);
+	}
+
+	/** removes the itemsets having a superset with one more item that is frequent (if closed is false) or with the same support (if closed is true) */
+	private static List<Itemset> condense(final List<Itemset> frequentItemsets, final boolean closed)
+	{
+		final Map<Itemset,Integer> index = new HashMap<Itemset,Integer>();
+
+		for(int i=0; i<frequentItemsets.size(); i++)
+			index.put(frequentItemsets.get(i), i);
+
+		final boolean[] removed = new boolean[frequentItemsets.size()];
+
+		for(final Itemset superset : frequentItemsets)
+		{
+			final int[] items = superset.toArray();
+
+			if(items.length < 2)
+				continue;
+
+			final int[] subset = new int[items.length-1];
+
+			for(int skip=0; skip<items.length; skip++)
+			{
+				for(int i=0, s=0; i<items.length; i++)
+					if(i != skip)
+						subset[s++] = items[i];
+
+				final Integer j = index.get(new Itemset(subset, 0, 0));
+
+				if(j != null && (!closed || frequentItemsets.get(j).getSupport() == superset.getSupport()))
+					removed[j] = true;
+			}
+		}
+
+		final List<Itemset> condensed = new ArrayList<Itemset>();
+
+		for(int i=0; i<frequentItemsets.size(); i++)
+			if(!removed[i])
+				condensed.add(frequentItemsets.get(i));
+
+		return condensed;
+	}
+}
@@ -0,0 +1,301 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/** The class encapsulates a vertical implementation (Eclat with diffsets, a.k.a. dEclat)
+ * of the frequent itemsets mining.
+ *
+ * The transactions (read from a transaction file, same format used by {@link Apriori}, or built from a {@link Table})
+ * are scanned to build, for each frequent item, its tidset, i.e. the sorted list of the indexes of the transactions containing it.
+ * Itemsets are then extended depth-first: the support of a 2-itemset is computed from the tidsets of its items,
+ * while deeper itemsets are computed from diffsets, i.e. d(PXY) = d(PY) - d(PX) and sup(PXY) = sup(PX) - |d(PXY)|.
+ * Tidsets and diffsets are sparse, taking one integer per transaction they hold, so the diffsets of a dense dataset
+ * take much less memory than the tidsets; a difference is given up as soon as it is too large for the itemset to be frequent.
+ */
+public class Eclat
+{
+	/** receives the frequent itemsets as soon as they are found */
+	private final ItemsetSink sink;
+
+	/** number of different items in the dataset */
+	private int numItems;
+	/** total number of transactions */
+	private int numTransactions;
+	/** minimum support for a frequent itemset in percentage, e.g. 0.8 */
+	private double minSup;
+	/** maximum number of items of a frequent itemset (0 for no limit) */
+	private int maxItemsetLength;
+	/** minimum support of a frequent itemset, as a number of transactions */
+	private int minCount;
+	/** tidsets[i] is the sorted list of the transactions containing the item i, null if the item is not frequent */
+	private int[][] tidsets;
+	/** the elements of the difference being computed */
+	private int[] difference;
+	/** the transactions, used to know which items are values of the same single value attribute */
+	private Transactions transactions;
+
+	private int numFrequentSets = 0;
+
+	private boolean showFrequentItemsets;
+
+	/** generates the frequent itemsets from a file
+	 *
+	 * @param args configuration parameters: args[0] is a filename, args[1] the min support (e.g. 0.8 for 80%),
+	 * args[2] (optional) the maximum number of items of a frequent itemset (by default, no limit)
+	 */
+	public Eclat(String[] args, boolean showFrequentItemsets) throws Exception
+	{
+		this.showFrequentItemsets = showFrequentItemsets;
+		sink = new ItemsetCollector();
+		configure(args);
+		go();
+	}
+
+	/** generates the frequent itemsets from the rows of a table, without going through a transaction file
+	 *
+	 * @param minSup the min support (e.g. 0.8 for 80%)
+	 * @param maxItemsetLength the maximum number of items of a frequent itemset (0 for no limit)
+	 */
+	public Eclat(Table table, double minSup, int maxItemsetLength, boolean showFrequentItemsets) throws Exception
+	{
+		this(table, minSup, maxItemsetLength, new ItemsetCollector(), showFrequentItemsets);
+	}
+
+	/** generates the frequent itemsets from the rows of a table, sending them to the sink as soon as they are found (see {@link #Eclat(Table, double, int, boolean)}) */
+	public Eclat(Table table, double minSup, int maxItemsetLength, ItemsetSink sink, boolean showFrequentItemsets) throws Exception
+	{
+		this.showFrequentItemsets = showFrequentItemsets;
+		this.sink = sink;
+		configure(Transactions.fromTable(table), minSup, maxItemsetLength);
+		go();
+	}
+
+
+	/** returns the frequent itemsets, or null if they have been sent to a sink given to the constructor */
+	public List<Itemset> getItemsets()
+	{
+		return sink instanceof ItemsetCollector ? ((ItemsetCollector) sink).getItemsets() : null;
+	}
+
+
+	/** starts the algorithm after configuration */
+	private void go()
+	{
+		final long start = System.currentTimeMillis();
+
+		final int[] items = new int[numItems];
+		final int[][] sets = new int[numItems][];
+		final int[] supports = new int[numItems];
+		int n = 0;
+
+		for(int i=0; i<numItems; i++)
+		{
+			if(tidsets[i] == null)
+				continue;
+
+			final int support = tidsets[i].length;
+
+			if(isFrequent(support))
+			{
+				items[n] = i;
+				sets[n] = tidsets[i];
+				supports[n] = support;
+				n++;
+
+				foundFrequentItemSet(new int[]{i}, support);
+			}
+		}
+
+		// the tidsets of the single items are no longer needed
+		tidsets = null;
+
+		if(showFrequentItemsets)
+			log("Found "+n+" frequent itemsets of size 1 (with support "+(minSup*100)+"%)");
+
+		if(maxItemsetLength != 1)
+			extend(new int[0], items, sets, supports, n, false);
+
+		final long end = System.currentTimeMillis();
+
+		if(showFrequentItemsets)
+		{
+			log("Execution time is: "+((double)(end-start)/1000) + " seconds.");
+			log("Found "+numFrequentSets+ " frequents sets for support "+(minSup*100)+"% (absolute "+Math.round(numTransactions*minSup)+")");
+			log("Done");
+		}
+	}
+
+
+	/**
+	 * extends each member of the equivalence class identified by prefix with the members that follow it.
+	 *
+	 * @param items the last item of each member of the class (sorted)
+	 * @param sets the tidsets (if diffsets is false) or the diffsets w.r.t. the prefix (otherwise) of the members
+	 * @param supports the supports of the members
+	 * @param n the number of members
+	 */
+	private void extend(final int[] prefix, final int[] items, final int[][] sets, final int[] supports, final int n, final boolean diffsets)
+	{
+		for(int a=0; a<n-1; a++)
+		{
+			final int[] newPrefix = Arrays.copyOf(prefix, prefix.length+1);
+			newPrefix[prefix.length] = items[a];
+
+			final int[] childItems = new int[n-a-1];
+			final int[][] childSets = new int[n-a-1][];
+			final int[] childSupports = new int[n-a-1];
+			int m = 0;
+
+			for(int b=a+1; b<n; b++)
+			{
+				// two values of the same single value attribute never occur together (with minSup = 0 the empty support is frequent)
+				if(minSup > 0 && transactions.sameSingleValueAttribute(items[a], items[b]))
+					continue;
+
+				// tidsets: d(XY) = t(X) - t(Y); diffsets: d(PXY) = d(PY) - d(PX), null if PXY is not frequent
+				final int[] diffset = diffsets ? difference(sets[b], sets[a], supports[a] - minCount) : difference(sets[a], sets[b], supports[a] - minCount);
+
+				if(diffset != null)
+				{
+					final int support = supports[a] - diffset.length;
+
+					childItems[m] = items[b];
+					childSets[m] = diffset;
+					childSupports[m] = support;
+					m++;
+
+					final int[] itemset = Arrays.copyOf(newPrefix, newPrefix.length+1);
+					itemset[newPrefix.length] = items[b];
+					foundFrequentItemSet(itemset, support);
+				}
+			}
+
+			// the members of the child class have newPrefix.length+1 items, their extensions one more
+			if(m > 0 && (maxItemsetLength == 0 || newPrefix.length+2 <= maxItemsetLength))
+				extend(newPrefix, childItems, childSets, childSupports, m, true);
+		}
+	}
+
+
+	private boolean isFrequent(final int support)
+	{
+		return (support / (double) numTransactions) >= minSup;
+	}
+
+
+	/** returns the transactions of x (sorted) that are not in y (sorted), or null if they are more than limit */
+	private int[] difference(final int[] x, final int[] y, final int limit)
+	{
+		int n = 0;
+		int j = 0;
+
+		for(final int t : x)
+		{
+			while(j < y.length && y[j] < t)
+				j++;
+
+			if(j == y.length || y[j] != t)
+			{
+				if(n == limit)
+					return null;
+
+				difference[n++] = t;
+			}
+		}
+
+		return Arrays.copyOf(difference, n);
+	}
+
+
+	private void foundFrequentItemSet(final int[] itemset, final int support)
+	{
+		sink.found(itemset, support);
+		numFrequentSets++;
+	}
+
+
+	/** outputs a message in Sys.err */
+	private void log(String message)
+	{
+		System.err.println(message);
+	}
+
+
+	/** loads the transactions of the file args[0], and sets minSup and maxItemsetLength */
+	private void configure(String[] args) throws Exception
+	{
+		double minSup;
+
+		if(args.length>=2)
+			minSup=(Double.valueOf(args[1]).doubleValue());
+		else
+			minSup = .8;// by default
+
+		final int maxItemsetLength = args.length>=3 ? Integer.parseInt(args[2]) : 0;
+
+		configure(Transactions.read(args[0]), minSup, maxItemsetLength);
+	}
+
+
+	/** 
+	 * sets minSup and maxItemsetLength, and builds the tidsets of the items in a single pass over the transactions
+	 * (only for the frequent items if the transactions know the supports of their items)
+	 */
+	private void configure(Transactions transactions, double minSup, int maxItemsetLength) throws Exception
+	{
+		if (minSup>1 || minSup<0) throw new Exception("minSup: bad value");
+		if (maxItemsetLength<0) throw new Exception("maxItemsetLength: bad value");
+
+		this.minSup = minSup;
+		this.maxItemsetLength = maxItemsetLength;
+		this.transactions = transactions;
+		numItems = transactions.getNumItems();
+		numTransactions = transactions.size();
+
+		minCount = (int) Math.ceil(minSup * numTransactions);
+
+		while(minCount > 0 && isFrequent(minCount-1))
+			minCount--;
+
+		while(minCount < numTransactions && !isFrequent(minCount))
+			minCount++;
+
+		difference = new int[numTransactions];
+
+		int[] itemSupports = transactions.getItemSupports();
+
+		if(itemSupports == null)
+		{
+			itemSupports = new int[numItems];
+
+			for(int t=0; t<numTransactions; t++)
+				for(final int x : transactions.get(t))
+					itemSupports[x]++;
+		}
+
+		// the number of transactions already in each tidset
+		final int[] sizes = new int[numItems];
+		tidsets = new int[numItems][];
+
+		for(int i=0; i<numItems; i++)
+			if(isFrequent(itemSupports[i]))
+				tidsets[i] = new int[itemSupports[i]];
+
+		for(int t=0; t<numTransactions; t++)
+			for(final int x : transactions.get(t))
+				if(tidsets[x] != null)
+					tidsets[x][sizes[x]++] = t;
+
+		if(showFrequentItemsets)
+		{
+			log("Input configuration: "+numItems+" items, "+numTransactions+" transactions, ");
+			log("minsup = "+minSup+"%");
+		}
+	}
+}
@@ -0,0 +1,361 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/** The class encapsulates an implementation of the FP-Growth algorithm
+ * to compute frequent itemsets without candidate generation.
+ *
+ * The transactions (read from a transaction file, same format used by {@link Apriori}, or built from a {@link Table}) are scanned twice:
+ * the first pass counts the support of the single items, the second one inserts each transaction,
+ * restricted to its frequent items sorted by descending support, into a prefix tree (FP-tree).
+ * Frequent itemsets are then mined recursively from the conditional FP-trees.
+ */
+public class FPGrowth
+{
+	/** receives the frequent itemsets as soon as they are found */
+	private final ItemsetSink sink;
+
+	/** the transactions, each one sorted and without duplicates */
+	private Transactions transactions;
+	/** number of different items in the dataset */
+	private int numItems;
+	/** total number of transactions */
+	private int numTransactions;
+	/** minimum support for a frequent itemset in percentage, e.g. 0.8 */
+	private double minSup;
+	/** maximum number of items of a frequent itemset (0 for no limit) */
+	private int maxItemsetLength;
+	/** support of each item */
+	private int[] itemSupports;
+	/** frequent items sorted by descending support: the position of an item in this array is its rank */
+	private int[] frequentItems;
+	/** rank[i] is the rank of the item i, or -1 if i is not frequent */
+	private int[] rank;
+
+	private int numFrequentSets = 0;
+
+	private boolean showFrequentItemsets;
+
+	/** generates the frequent itemsets from a file
+	 *
+	 * @param args configuration parameters: args[0] is a filename, args[1] the min support (e.g. 0.8 for 80%),
+	 * args[2] (optional) the maximum number of items of a frequent itemset (by default, no limit)
+	 */
+	public FPGrowth(String[] args, boolean showFrequentItemsets) throws Exception
+	{
+		this.showFrequentItemsets = showFrequentItemsets;
+		sink = new ItemsetCollector();
+		configure(args);
+		go();
+	}
+
+	/** generates the frequent itemsets from the rows of a table, without going through a transaction file
+	 *
+	 * @param minSup the min support (e.g. 0.8 for 80%)
+	 * @param maxItemsetLength the maximum number of items of a frequent itemset (0 for no limit)
+	 */
+	public FPGrowth(Table table, double minSup, int maxItemsetLength, boolean showFrequentItemsets) throws Exception
+	{
+		this(table, minSup, maxItemsetLength, new ItemsetCollector(), showFrequentItemsets);
+	}
+
+	/** generates the frequent itemsets from the rows of a table, sending them to the sink as soon as they are found (see {@link #FPGrowth(Table, double, int, boolean)}) */
+	public FPGrowth(Table table, double minSup, int maxItemsetLength, ItemsetSink sink, boolean showFrequentItemsets) throws Exception
+	{
+		this.showFrequentItemsets = showFrequentItemsets;
+		this.sink = sink;
+		configure(Transactions.fromTable(table), minSup, maxItemsetLength);
+		go();
+	}
+
+
+	/** returns the frequent itemsets, or null if they have been sent to a sink given to the constructor */
+	public List<Itemset> getItemsets()
+	{
+		return sink instanceof ItemsetCollector ? ((ItemsetCollector) sink).getItemsets() : null;
+	}
+
+
+	/** node of an FP-tree */
+	private static final class FPNode
+	{
+		final int rank;
+		int count;
+		final FPNode parent;
+		FPNode firstChild;
+		FPNode nextSibling;
+		/** next node of the tree with the same rank */
+		FPNode nodeLink;
+
+		FPNode(final int rank, final FPNode parent)
+		{
+			this.rank = rank;
+			this.parent = parent;
+		}
+	}
+
+
+	private static final class FPTree
+	{
+		final FPNode root = new FPNode(-1, null);
+		/** first node of each rank */
+		final FPNode[] header;
+		/** support of each rank in the tree */
+		final int[] supports;
+
+		FPTree(final int numRanks)
+		{
+			header = new FPNode[numRanks];
+			supports = new int[numRanks];
+		}
+
+		/** inserts a path of ranks sorted in ascending order */
+		void insert(final int[] path, final int length, final int count)
+		{
+			FPNode node = root;
+
+			for(int i=0; i<length; i++)
+			{
+				final int r = path[i];
+				FPNode child = node.firstChild;
+
+				while(child != null && child.rank != r)
+					child = child.nextSibling;
+
+				if(child == null)
+				{
+					child = new FPNode(r, node);
+					child.nextSibling = node.firstChild;
+					node.firstChild = child;
+					child.nodeLink = header[r];
+					header[r] = child;
+				}
+
+				child.count += count;
+				supports[r] += count;
+				node = child;
+			}
+		}
+	}
+
+
+	/** starts the algorithm after configuration */
+	private void go()
+	{
+		final long start = System.currentTimeMillis();
+
+		final FPTree tree = buildTree();
+
+		if(showFrequentItemsets)
+			log("Built the FP-tree of "+frequentItems.length+" frequent items");
+
+		mine(tree, new int[0]);
+
+		final long end = System.currentTimeMillis();
+
+		if(showFrequentItemsets)
+		{
+			log("Execution time is: "+((double)(end-start)/1000) + " seconds.");
+			log("Found "+numFrequentSets+ " frequents sets for support "+(minSup*100)+"% (absolute "+Math.round(numTransactions*minSup)+")");
+			log("Done");
+		}
+	}
+
+
+	/** second pass over the transactions: inserts each transaction into the FP-tree */
+	private FPTree buildTree()
+	{
+		final FPTree tree = new FPTree(frequentItems.length);
+		final int[] path = new int[frequentItems.length];
+
+		for(int t=0; t<numTransactions; t++)
+		{
+			int length = 0;
+
+			for(final int x : transactions.get(t))
+				if(rank[x] >= 0)
+					path[length++] = rank[x];
+
+			Arrays.sort(path, 0, length);
+			tree.insert(path, length, 1);
+		}
+
+		// the transactions are no longer needed
+		transactions = null;
+
+		return tree;
+	}
+
+
+	/**
+	 * mines the itemsets that end with each rank of the tree,
+	 * building a conditional FP-tree for each of them
+	 *
+	 * @param suffix the items the tree is conditioned on
+	 */
+	private void mine(final FPTree tree, final int[] suffix)
+	{
+		final int numRanks = tree.header.length;
+		final int[] counts = new int[numRanks];
+		final int[] path = new int[numRanks];
+
+		for(int r=numRanks-1; r>=0; r--)
+		{
+			// with minSup = 0 a rank missing from the tree is frequent too, and so are its extensions (of support 0)
+			if(!isFrequent(tree.supports[r]))
+				continue;
+
+			final int[] itemset = Arrays.copyOf(suffix, suffix.length+1);
+			itemset[suffix.length] = frequentItems[r];
+			foundFrequentItemSet(itemset, tree.supports[r]);
+
+			if(itemset.length == maxItemsetLength)
+				continue;
+
+			// support of each rank in the conditional pattern base of r
+			Arrays.fill(counts, 0, r, 0);
+
+			for(FPNode node = tree.header[r]; node != null; node = node.nodeLink)
+				for(FPNode p = node.parent; p.parent != null; p = p.parent)
+					counts[p.rank] += node.count;
+
+			boolean empty = true;
+
+			for(int i=0; i<r && empty; i++)
+				if(isFrequent(counts[i]))
+					empty = false;
+
+			if(empty)
+				continue;
+
+			final FPTree conditionalTree = new FPTree(r);
+
+			for(FPNode node = tree.header[r]; node != null; node = node.nodeLink)
+			{
+				int length = 0;
+
+				for(FPNode p = node.parent; p.parent != null; p = p.parent)
+					if(isFrequent(counts[p.rank]))
+						path[length++] = p.rank;
+
+				// the path has been collected bottom-up, i.e. in descending rank order
+				for(int i=0, j=length-1; i<j; i++, j--)
+				{
+					final int swap = path[i];
+					path[i] = path[j];
+					path[j] = swap;
+				}
+
+				conditionalTree.insert(path, length, node.count);
+			}
+
+			mine(conditionalTree, itemset);
+		}
+	}
+
+
+	private boolean isFrequent(final int support)
+	{
+		return (support / (double) numTransactions) >= minSup;
+	}
+
+
+	private void foundFrequentItemSet(final int[] itemset, final int support)
+	{
+		final int[] sorted = itemset.clone();
+		Arrays.sort(sorted);
+		sink.found(sorted, support);
+		numFrequentSets++;
+	}
+
+
+	/** outputs a message in Sys.err */
+	private void log(String message)
+	{
+		System.err.println(message);
+	}
+
+
+	/** loads the transactions of the file args[0], and sets minSup and maxItemsetLength */
+	private void configure(String[] args) throws Exception
+	{
+		double minSup;
+
+		if(args.length>=2)
+			minSup=(Double.valueOf(args[1]).doubleValue());
+		else
+			minSup = .8;// by default
+
+		final int maxItemsetLength = args.length>=3 ? Integer.parseInt(args[2]) : 0;
+
+		configure(Transactions.read(args[0]), minSup, maxItemsetLength);
+	}
+
+
+	/** 
+	 * sets minSup and maxItemsetLength, and computes numItems, numTransactions and the support of each item
+	 * (first pass over the transactions, unless the transactions know the supports of their items)
+	 */
+	private void configure(Transactions transactions, double minSup, int maxItemsetLength) throws Exception
+	{
+		if (minSup>1 || minSup<0) throw new Exception("minSup: bad value");
+		if (maxItemsetLength<0) throw new Exception("maxItemsetLength: bad value");
+
+		this.minSup = minSup;
+		this.maxItemsetLength = maxItemsetLength;
+		this.transactions = transactions;
+		numItems = transactions.getNumItems();
+		numTransactions = transactions.size();
+		itemSupports = transactions.getItemSupports();
+
+		if(itemSupports == null)
+		{
+			itemSupports = new int[numItems];
+
+			for(int t=0; t<numTransactions; t++)
+				for(final int x : transactions.get(t))
+					itemSupports[x]++;
+		}
+
+		final List<Integer> frequent = new ArrayList<Integer>();
+
+		for(int i=0; i<numItems; i++)
+			if(isFrequent(itemSupports[i]))
+				frequent.add(i);
+
+		// descending support, ties broken by item
+		Collections.sort(frequent, new Comparator<Integer>()
+		{
+			@Override
+			public int compare(final Integer i1, final Integer i2)
+			{
+				if(itemSupports[i1] != itemSupports[i2])
+					return itemSupports[i1] > itemSupports[i2] ? -1 : 1;
+
+				return i1.compareTo(i2);
+			}
+		});
+
+		frequentItems = new int[frequent.size()];
+		rank = new int[numItems];
+		Arrays.fill(rank, -1);
+
+		for(int r=0; r<frequentItems.length; r++)
+		{
+			frequentItems[r] = frequent.get(r);
+			rank[frequentItems[r]] = r;
+		}
+
+		if(showFrequentItemsets)
+		{
+			log("Input configuration: "+numItems+" items, "+numTransactions+" transactions, ");
+			log("minsup = "+minSup+"%");
+		}
+	}
+}
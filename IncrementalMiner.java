@@ -0,0 +1,429 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.io.*;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedInputStream;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Incremental mining of the frequent itemsets of a table whose rows are only appended between two runs.
+ *
+ * At the end of each run, the frequent itemsets and the negative border (the infrequent itemsets whose subsets are all frequent),
+ * with their supports, are stored in a state file (ending with a CRC32 checksum)
+ * together with the number of rows mined and a CRC32 checksum of their values.
+ * In the next run only the appended rows are scanned to update these supports:
+ * if no itemset of the negative border becomes frequent, no other itemset can become frequent (each one would have a subset in the border),
+ * so the frequent itemsets are the stored itemsets that are still frequent, exactly as if all the rows were mined again.
+ * The values of an encoded table (see {@link TableEncoder}) are encoded again whenever rows are appended, which may change their codes:
+ * the state then also holds a checksum of the values of the codes of the mined items, so that the stored itemsets are not mixed with other values.
+ * Otherwise, or if the state does not match the table (its first rows are not the ones mined, or their codes stand for other values) and the minimum support,
+ * or if it cannot be read, all the rows are mined again with {@link Apriori}.
+ */
+public class IncrementalMiner
+{
+	private static final int VERSION = 4;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private List<Itemset> itmsts = new ArrayList<Itemset>();
+	/** the negative border, or a superset of it (all the stored itemsets not frequent anymore), with the supports */
+	private List<Itemset> border = new ArrayList<Itemset>();
+	/** number of different items in the mined rows */
+	private int numItems;
+	/** the checksum of the values of the mined rows */
+	private long checksum;
+	/** the dictionary of the codes of the values of the table, null if the table is not encoded */
+	private final String dictionaryName;
+	/** minimum support for a frequent itemset in percentage, e.g. 0.8 */
+	private final double minSup;
+	private final int numThreads;
+	/** maximum number of items of a frequent itemset (0 for no limit): the stored negative border only holds itemsets not longer than it */
+	private final int maxItemsetLength;
+	private final long memoryBudget;
+	private final boolean showFrequentItemsets;
+
+	/**
+	 * computes the frequent itemsets of the table, updating the ones stored in stateFile by a previous run if possible,
+	 * and stores the new state in stateFile
+	 *
+	 * @param minSup the min support (e.g. 0.8 for 80%)
+	 * @param numThreads the number of threads counting the support of the candidates, if all the rows have to be mined (0 for as many as the available processors)
+	 * @param maxItemsetLength the maximum number of items of a frequent itemset (0 for no limit)
+	 * @param memoryBudget the memory budget of the candidates of a level, if all the rows have to be mined (see {@link Apriori})
+	 * @param dictionaryName the dictionary of the codes of the values, if the table is encoded (null otherwise)
+	 */
+	public IncrementalMiner(Table table, double minSup, int numThreads, int maxItemsetLength, long memoryBudget, String stateFile, String dictionaryName, boolean showFrequentItemsets) throws Exception
+	{
+		this.dictionaryName = dictionaryName;
+		this.minSup = minSup;
+		this.numThreads = numThreads;
+		this.maxItemsetLength = maxItemsetLength;
+		this.memoryBudget = memoryBudget;
+		this.showFrequentItemsets = showFrequentItemsets;
+
+		final long start = System.currentTimeMillis();
+
+		if(!update(table, new File(stateFile)))
+			mine(table);
+
+		save(table, new File(stateFile));
+
+		if(showFrequentItemsets)
+			log("Execution time is: "+((double)(System.currentTimeMillis()-start)/1000) + " seconds.");
+	}
+
+
+	public List<Itemset> getItemsets()
+	{
+		return itmsts;
+	}
+
+
+	/** mines all the rows of the table */
+	private void mine(final Table table) throws Exception
+	{
+		final Transactions transactions = Transactions.fromTable(table);
+		final Apriori apriori = new Apriori(transactions, minSup, numThreads, maxItemsetLength, memoryBudget, true, showFrequentItemsets);
+
+		itmsts = apriori.getItemsets();
+		border = apriori.getNegativeBorder();
+		numItems = transactions.getNumItems();
+
+		final CRC32 crc = new CRC32();
+		update(crc, table, 0, table.getSize());
+		checksum = crc.getValue();
+	}
+
+
+	/**
+	 * the checksum of the values of the codes from 0 to numItems - 1 in the dictionary (0 if the table is not encoded),
+	 * -1 if the dictionary has fewer codes
+	 */
+	private long dictionaryChecksum(final int numItems) throws IOException
+	{
+		if(dictionaryName == null)
+			return 0;
+
+		final TableDecoder decoder = new TableDecoder(dictionaryName);
+
+		try
+		{
+			if(numItems > decoder.getNumCodes())
+				return -1;
+
+			final CRC32 crc = new CRC32();
+
+			for(int code=0; code<numItems; code++)
+			{
+				crc.update(decoder.decode(code).getBytes(UTF_8));
+				crc.update('\n');
+			}
+
+			return crc.getValue();
+		}
+		finally
+		{
+			decoder.close();
+		}
+	}
+
+
+	/** adds the values of the rows from (included) to (excluded) of the table to the checksum, row by row and attribute by attribute */
+	private static void update(final CRC32 crc, final Table table, final int from, final int to)
+	{
+		final byte[] bytes = new byte[1 << 16];
+		int n = 0;
+
+		for(int r=from; r<to; r++)
+		{
+			// a row takes at most 4 bytes for each single value attribute, and 4 bytes plus 4 for each value for each multi value attribute
+			int rowBytes = 4*table.getNumberOfSVAttributes();
+
+			for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+				rowBytes += 4 + 4*table.getMVSize(c, r);
+
+			if(n + rowBytes > bytes.length)
+			{
+				crc.update(bytes, 0, n);
+				n = 0;
+			}
+
+			if(rowBytes > bytes.length)
+			{
+				final byte[] row = new byte[rowBytes];
+				crc.update(row, 0, put(row, 0, table, r));
+			}
+			else
+				n = put(bytes, n, table, r);
+		}
+
+		crc.update(bytes, 0, n);
+	}
+
+
+	/** writes the values of the row to the bytes from position n, and returns the position after them */
+	private static int put(final byte[] bytes, int n, final Table table, final int r)
+	{
+		for(int c=0; c<table.getNumberOfSVAttributes(); c++)
+			n = put(bytes, n, table.getSVValue(c, r));
+
+		for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+		{
+			final int size = table.getMVSize(c, r);
+			n = put(bytes, n, size);
+
+			for(int k=0; k<size; k++)
+				n = put(bytes, n, table.getMVValue(c, r, k));
+		}
+
+		return n;
+	}
+
+
+	private static int put(final byte[] bytes, final int n, final int value)
+	{
+		bytes[n] = (byte) (value >>> 24);
+		bytes[n+1] = (byte) (value >>> 16);
+		bytes[n+2] = (byte) (value >>> 8);
+		bytes[n+3] = (byte) value;
+
+		return n+4;
+	}
+
+
+	/**
+	 * updates the supports of the stored itemsets scanning only the rows appended after the previous run
+	 *
+	 * @return false if the rows have to be mined again
+	 */
+	private boolean update(final Table table, final File stateFile) throws IOException
+	{
+		if(!stateFile.exists())
+		{
+			log("No previous state in " + stateFile + ": mining all the rows");
+			return false;
+		}
+
+		final double stateMinSup;
+		final int stateMaxItemsetLength;
+		final int numRows;
+		final long stateChecksum;
+		final long stateDictionaryChecksum;
+		final int stateNumItems;
+		final List<Itemset> frequent;
+		final List<Itemset> stateBorder;
+
+		try
+		{
+			final CheckedInputStream checked = new CheckedInputStream(new BufferedInputStream(new FileInputStream(stateFile)), new CRC32());
+			final DataInputStream in = new DataInputStream(checked);
+
+			try
+			{
+				if(in.readInt() != VERSION)
+				{
+					log("Unknown version of the state in " + stateFile + ": mining all the rows");
+					return false;
+				}
+
+				stateMinSup = in.readDouble();
+				stateMaxItemsetLength = in.readInt();
+				numRows = in.readInt();
+				stateChecksum = in.readLong();
+				stateDictionaryChecksum = in.readLong();
+				stateNumItems = in.readInt();
+				// an itemset takes at least 8 bytes, so there cannot be more of them than stateFile.length()/8
+				frequent = readItemsets(in, stateFile.length()/8);
+				stateBorder = readItemsets(in, stateFile.length()/8);
+
+				// the state ends with the checksum of the preceding bytes
+				if(checked.getChecksum().getValue() != in.readLong())
+					throw new IOException("wrong checksum");
+			}
+			finally
+			{
+				in.close();
+			}
+		}
+		catch(final IOException e)
+		{
+			log("The state in " + stateFile + " cannot be read (" + e.getMessage() + "): mining all the rows");
+			return false;
+		}
+
+		if(stateMinSup != minSup || stateMaxItemsetLength != maxItemsetLength || numRows > table.getSize())
+		{
+			log("The state in " + stateFile + " does not match the table, the minimum support or the maximum itemset length: mining all the rows");
+			return false;
+		}
+
+		if(dictionaryChecksum(stateNumItems) != stateDictionaryChecksum)
+		{
+			log("The codes of the values in " + dictionaryName + " changed since the previous run: mining all the rows");
+			return false;
+		}
+
+		// the rows mined by the previous run must be the first rows of the table, unchanged
+		final CRC32 crc = new CRC32();
+		update(crc, table, 0, numRows);
+
+		if(crc.getValue() != stateChecksum)
+		{
+			log("The first " + numRows + " rows of the table are not the ones mined by the previous run: mining all the rows");
+			return false;
+		}
+
+		update(crc, table, numRows, table.getSize());
+
+		final Transactions appended = Transactions.fromTable(table, numRows);
+
+		// the stored itemsets, plus the items never seen before (support 0 in the previous rows): the first frequent.size() are the frequent ones
+		final List<Itemset> stored = new ArrayList<Itemset>(frequent);
+		stored.addAll(stateBorder);
+
+		for(int i=stateNumItems; i<appended.getNumItems(); i++)
+			stored.add(new Itemset(new int[]{i}, 0, -1));
+
+		final int[][] items = new int[stored.size()][];
+		final Node candidates = new Node();
+
+		for(int c=0; c<stored.size(); c++)
+		{
+			items[c] = stored.get(c).toArray();
+			candidates.insert(items[c], c);
+		}
+
+		final int[] count = new int[stored.size()];
+
+		for(int t=0; t<appended.size(); t++)
+			candidates.count(appended.get(t), count);
+
+		final int numTransactions = table.getSize();
+		final List<Itemset> newFrequent = new ArrayList<Itemset>();
+		final List<Itemset> newBorder = new ArrayList<Itemset>();
+
+		for(int c=0; c<stored.size(); c++)
+		{
+			final int support = stored.get(c).getSupport() + count[c];
+
+			if((support / (double) numTransactions) >= minSup)
+			{
+				if(c >= frequent.size())
+				{
+					log("The itemset " + Arrays.toString(items[c]) + " of the negative border became frequent: mining all the rows");
+					return false;
+				}
+
+				newFrequent.add(new Itemset(items[c], support, newFrequent.size()));
+			}
+			else
+				newBorder.add(new Itemset(items[c], support, -1));
+		}
+
+		log("Updated the supports of " + stored.size() + " itemsets scanning " + appended.size() + " appended rows");
+
+		itmsts = newFrequent;
+		border = newBorder;
+		numItems = Math.max(stateNumItems, appended.getNumItems());
+		checksum = crc.getValue();
+
+		return true;
+	}
+
+
+	/** stores the frequent itemsets and the negative border (written to a temporary file first, so a failure never leaves a truncated state) */
+	private void save(final Table table, final File stateFile) throws IOException
+	{
+		final File temporary = new File(stateFile.getPath() + ".tmp");
+		final CheckedOutputStream checked = new CheckedOutputStream(new BufferedOutputStream(new FileOutputStream(temporary)), new CRC32());
+		final DataOutputStream out = new DataOutputStream(checked);
+
+		out.writeInt(VERSION);
+		out.writeDouble(minSup);
+		out.writeInt(maxItemsetLength);
+		out.writeInt(table.getSize());
+		out.writeLong(checksum);
+		out.writeLong(dictionaryChecksum(numItems));
+		out.writeInt(numItems);
+		writeItemsets(out, itmsts);
+		writeItemsets(out, border);
+		out.writeLong(checked.getChecksum().getValue());
+		out.close();
+
+		// the previous state file is replaced at once, so that a failure leaves either the old or the new one
+		try
+		{
+			Files.move(temporary.toPath(), stateFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(final AtomicMoveNotSupportedException e)
+		{
+			Files.move(temporary.toPath(), stateFile.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+
+	private static void writeItemsets(final DataOutputStream out, final List<Itemset> itemsets) throws IOException
+	{
+		out.writeInt(itemsets.size());
+
+		for(final Itemset itemset : itemsets)
+		{
+			final int[] items = itemset.toArray();
+			out.writeInt(items.length);
+
+			for(final int i : items)
+				out.writeInt(i);
+
+			out.writeInt(itemset.getSupport());
+		}
+	}
+
+
+	/** reads the itemsets written by writeItemsets, at most maxSize of them and of their items (more means that the state is corrupt) */
+	private static List<Itemset> readItemsets(final DataInputStream in, final long maxSize) throws IOException
+	{
+		final int size = readSize(in, maxSize);
+		final List<Itemset> itemsets = new ArrayList<Itemset>(size);
+
+		for(int s=0; s<size; s++)
+		{
+			final int[] items = new int[readSize(in, maxSize)];
+
+			for(int i=0; i<items.length; i++)
+				items[i] = in.readInt();
+
+			itemsets.add(new Itemset(items, in.readInt(), s));
+		}
+
+		return itemsets;
+	}
+
+
+	private static int readSize(final DataInputStream in, final long maxSize) throws IOException
+	{
+		final int size = in.readInt();
+
+		if(size < 0 || size > maxSize)
+			throw new IOException("corrupt state");
+
+		return size;
+	}
+
+
+	/** outputs a message in Sys.err */
+	private void log(String message)
+	{
+		if(showFrequentItemsets)
+			System.err.println(message);
+	}
+}
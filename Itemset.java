@@ -6,148 +6,304 @@
  * and imposing this condition on any subsequent users.
  */
 
-import gnu.trove.iterator.TLongIterator;
-import gnu.trove.map.hash.TIntObjectHashMap;
-import gnu.trove.set.hash.*;
-
 import java.io.Serializable;
 import java.util.*;
 
-public class Itemset implements Serializable,Iterable<Long>
-{	
-	static transient private final long[] value;
-	private transient static final int width;
-	
-	static
-	{
-		width = 63;
-		value = new long[width];
-		value[0] = 1;
-		
-		for(int i=1; i<value.length; i++)
-			value[i]=value[i-1]*2;
-	}
-	
+/**
+ * An immutable set of items (integers >= 0), with its support.
+ *
+ * Sparse itemsets are stored as the sorted array of their items; dense itemsets, i.e. the ones whose items fall in a range
+ * so narrow that a bitset takes less memory than the array, as a bitset of 64-bit words starting from the word of the smallest item.
+ * The representation only depends on the items, so equal itemsets always have the same one.
+ * The hash is computed once, the subset and intersection tests do not allocate,
+ * and the items are read in increasing order through a primitive {@link Cursor}.
+ */
+public class Itemset implements Serializable
+{
+	private static final long serialVersionUID = 1L;
+
+	/** the items, sorted and without duplicates (null for a dense itemset) */
+	private final int[] items;
+	/** bit b of words[w] is set if the item 64*(base+w)+b belongs to the itemset (null for a sparse itemset) */
+	private final long[] words;
+	private final int base;
+	private final int size;
+	private final int hash;
+
 	private transient int support;
 	private transient int id;
-	TIntObjectHashMap<Pair> set = new TIntObjectHashMap<Pair>();
-	
-	public Itemset() {}
-	
+
 	public Itemset(final long[] val, final int sup, final int id)
 	{
-		for(int i=0; i<val.length; i++)
-			add(val[i]);
-		
+		this(toInt(val), sup, id);
+	}
+
+	/** builds the itemset of the items in val, in any order and possibly with duplicates */
+	public Itemset(final int[] val, final int sup, final int id)
+	{
+		final int[] sorted = toSortedSet(val);
+
+		size = sorted.length;
 		support = sup;
 		this.id = id;
+
+		int h = 1;
+
+		for(final int i : sorted)
+			h = 31*h + i;
+
+		hash = h;
+
+		final int numWords = size == 0 ? 0 : (sorted[size-1] >>> 6) - (sorted[0] >>> 6) + 1;
+
+		// a word takes as much memory as two items
+		if(size > 0 && 2*numWords < size)
+		{
+			items = null;
+			base = sorted[0] >>> 6;
+			words = new long[numWords];
+
+			for(final int i : sorted)
+				words[(i >>> 6) - base] |= 1L << i;
+		}
+		else
+		{
+			items = sorted;
+			base = 0;
+			words = null;
+		}
+	}
+
+	private static int[] toInt(final long[] val)
+	{
+		final int[] array = new int[val.length];
+
+		for(int i=0; i<val.length; i++)
+			array[i] = (int) val[i];
+
+		return array;
 	}
-	
+
+	/** returns a sorted copy of the items without duplicates */
+	private static int[] toSortedSet(final int[] val)
+	{
+		final int[] set = val.clone();
+		boolean sorted = true;
+
+		for(int i=1; i<set.length && sorted; i++)
+			sorted = set[i-1] < set[i];
+
+		if(sorted)
+			return set;
+
+		Arrays.sort(set);
+
+		int n = 0;
+
+		for(int i=0; i<set.length; i++)
+			if(n == 0 || set[n-1] != set[i])
+				set[n++] = set[i];
+
+		return n == set.length ? set : Arrays.copyOf(set, n);
+	}
+
 	public int getSupport()
 	{
 		return support;
 	}
-	
-	public void add(final long val)
+
+	/** number of items */
+	public int size()
 	{
-		long co = val/width;
-		int v = (int) (val%width);
-		long f = value[v];
-		Pair c1 = set.get((int) co);
-		if(c1 != null)
-			c1.set = c1.set|f;
-		else
+		return size;
+	}
+
+	public boolean contains(final int item)
+	{
+		if(items != null)
+			return Arrays.binarySearch(items, item) >= 0;
+
+		final int w = (item >>> 6) - base;
+
+		return item >= 0 && w >= 0 && w < words.length && (words[w] & (1L << item)) != 0;
+	}
+
+	/** true if all the items of other belong to this itemset */
+	public boolean containsAll(final Itemset other)
+	{
+		if(other.size > size)
+			return false;
+
+		if(words != null && other.words != null)
 		{
-			c1 = new Pair(co,f);
-			set.put((int) co, c1);
+			for(int w=0; w<other.words.length; w++)
+			{
+				final int v = other.base + w - base;
+				final long word = v >= 0 && v < words.length ? words[v] : 0;
+
+				if((other.words[w] & ~word) != 0)
+					return false;
+			}
+
+			return true;
 		}
-	}	
 
-	public TIntHashSet getElements()
-	{
-		TLongHashSet tid = new TLongHashSet();
-		
-		for(Pair c:set.valueCollection())
+		if(items != null && other.items != null)
 		{
-			long h = c.set;
-			long s = c.number*width;
-			
-			if(h != 0)
+			// both arrays are sorted: a single merge pass
+			int i = 0;
+
+			for(final int item : other.items)
 			{
-				long h1 = Long.numberOfTrailingZeros(h);
-		        tid.add((int) (s+h1));	
-				h=h-value[(int) h1];
-			} 
+				while(i < items.length && items[i] < item)
+					i++;
+
+				if(i == items.length || items[i] != item)
+					return false;
+
+				i++;
+			}
+
+			return true;
+		}
+
+		final Cursor cursor = other.cursor();
+
+		while(cursor.hasNext())
+			if(!contains(cursor.next()))
+				return false;
+
+		return true;
+	}
+
+	/** true if this itemset and other have at least one item in common */
+	public boolean intersects(final Itemset other)
+	{
+		if(words != null && other.words != null)
+		{
+			for(int w=Math.max(base, other.base); w<Math.min(base+words.length, other.base+other.words.length); w++)
+				if((words[w-base] & other.words[w-other.base]) != 0)
+					return true;
+
+			return false;
 		}
-		
-		TIntHashSet tid2 = new TIntHashSet();
-		
-		TLongIterator iterator = tid.iterator();
-		
-		while(iterator.hasNext())
+
+		if(items != null && other.items != null)
 		{
-			int i = (int) iterator.next();
-			tid2.add(i);
+			for(int i=0, j=0; i<items.length && j<other.items.length; )
+				if(items[i] == other.items[j])
+					return true;
+				else
+					if(items[i] < other.items[j])
+						i++;
+					else
+						j++;
+
+			return false;
 		}
 
-		return tid2;
+		final Itemset smaller = size <= other.size ? this : other;
+		final Itemset larger = smaller == this ? other : this;
+		final Cursor cursor = smaller.cursor();
+
+		while(cursor.hasNext())
+			if(larger.contains(cursor.next()))
+				return true;
+
+		return false;
 	}
 
-	@Override
-	public Iterator<Long> iterator()
+	/** returns the itemset made of these items plus item (support 0) */
+	public Itemset with(final int item)
+	{
+		final int[] array = Arrays.copyOf(toArray(), size+1);
+		array[size] = item;
+
+		return new Itemset(array, 0, -1);
+	}
+
+	/** returns the items of the itemset, sorted */
+	public int[] toArray()
+	{
+		if(items != null)
+			return items.clone();
+
+		final int[] array = new int[size];
+		final Cursor cursor = cursor();
+
+		for(int i=0; i<size; i++)
+			array[i] = cursor.next();
+
+		return array;
+	}
+
+	/** returns a cursor over the items, in increasing order */
+	public Cursor cursor()
+	{
+		return new Cursor(this);
+	}
+
+	/**
+	 * iterates over the items of an itemset in increasing order, without boxing them:
+	 * while(cursor.hasNext()) { final int item = cursor.next(); ... }
+	 */
+	public static final class Cursor
 	{
-		return new Iterator<Long>()
-				{
-            		Iterator<Pair> it = set.valueCollection().iterator();
-            		long value;
-            		long h=0;
-			
-            		@Override
-            		public boolean hasNext()
-            		{
-            			return h>0||it.hasNext();
-            		}
-
-            		@Override
-            		public Long next()
-            		{
-            			if(h == 0)
-            			{
-            				Pair c = it.next();
-            				value = c.number * width;
-            				h = c.set;
-            			}
-            			
-            			int h1 = Long.numberOfTrailingZeros(h);
-            			h = h-Itemset.value[h1];
-            			
-            			return h1 + value;
-            		}
-
-            		@Override
-            		public void remove(){}
-				};
-	}
-	
+		private final Itemset itemset;
+		/** the position of the next item (sparse itemsets) or of the current word (dense itemsets) */
+		private int index = 0;
+		/** the items of the current word not read yet (dense itemsets) */
+		private long word;
+
+		private Cursor(final Itemset itemset)
+		{
+			this.itemset = itemset;
+
+			if(itemset.words != null)
+				word = itemset.words[0];
+		}
+
+		public boolean hasNext()
+		{
+			if(itemset.items != null)
+				return index < itemset.items.length;
+
+			while(word == 0 && index+1 < itemset.words.length)
+				word = itemset.words[++index];
+
+			return word != 0;
+		}
+
+		public int next()
+		{
+			if(itemset.items != null)
+				return itemset.items[index++];
+
+			if(!hasNext())
+				throw new NoSuchElementException();
+
+			final int bit = Long.numberOfTrailingZeros(word);
+			word &= word-1;
+
+			return ((itemset.base + index) << 6) + bit;
+		}
+	}
+
 	@Override
 	public String toString()
 	{
-		String s = "{";
-		
-		for(final long i : this)
-			s += " " + i;
-		
-		s += "}";
-		
-		return s;
+		final StringBuilder s = new StringBuilder("{");
+		final Cursor cursor = cursor();
+
+		while(cursor.hasNext())
+			s.append(' ').append(cursor.next());
+
+		return s.append('}').toString();
 	}
 
 	@Override
 	public int hashCode() {
-		final int prime = 31;
-		int result = 1;
-		result = prime * result + ((set == null) ? 0 : set.hashCode());
-		return result;
+		return hash;
 	}
 
 	@Override
@@ -159,12 +315,12 @@ public class Itemset implements Serializable,Iterable<Long>
 		if (getClass() != obj.getClass())
 			return false;
 		Itemset other = (Itemset) obj;
-		if (set == null) {
-			if (other.set != null)
-				return false;
-		} else if (!set.equals(other.set))
+		if (hash != other.hash || size != other.size || base != other.base)
 			return false;
-		return true;
+		// the representation only depends on the items
+		if (items != null)
+			return Arrays.equals(items, other.items);
+		return Arrays.equals(words, other.words);
 	}
 
 }
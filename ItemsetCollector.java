@@ -0,0 +1,29 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/** 
+ * {@link ItemsetSink} keeping the frequent itemsets in a list, in the order they are found;
+ * each itemset gets as id its position in the list, so that each mining run numbers its itemsets from 0
+ */
+public class ItemsetCollector implements ItemsetSink
+{
+	private final List<Itemset> itemsets = new ArrayList<Itemset>();
+
+	@Override
+	public void found(final int[] itemset, final int support)
+	{
+		itemsets.add(new Itemset(itemset, support, itemsets.size()));
+	}
+
+	public List<Itemset> getItemsets()
+	{
+		return itemsets;
+	}
+}
@@ -0,0 +1,227 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/**
+ * Interning dictionary of itemsets: each distinct itemset gets a dense integer id (0, 1, 2, ... in order of insertion),
+ * so that itemsets can be compared, hashed and indexed by id.
+ *
+ * The sorted items of all the itemsets are packed one after the other in a single array (offsets[id] is the start of the itemset id),
+ * and an open addressing hash table maps them to their ids. An itemset is first written at the end of the packed array
+ * and looked up there: if it is already in the dictionary the copy is discarded, so interning an itemset allocates no object.
+ */
+public class ItemsetDictionary
+{
+	/** the items of the itemsets, each itemset sorted, one after the other */
+	private int[] items = new int[64];
+	/** number of packed items */
+	private int numItems = 0;
+	/** the itemset id is made of items[offsets[id]], ..., items[offsets[id+1]-1] */
+	private int[] offsets = new int[17];
+	private int[] hashes = new int[16];
+	/** number of itemsets */
+	private int size = 0;
+	/** each slot stores the id (+1) of an itemset, 0 marks an empty slot */
+	private int[] slots = new int[32];
+
+	/** returns the id of the itemset made of the items (sorted, without duplicates), adding it if needed */
+	public int add(final int[] itemset)
+	{
+		write(itemset);
+
+		return intern(itemset.length, true);
+	}
+
+	/** returns the id of the itemset, adding it if needed */
+	public int add(final Itemset itemset)
+	{
+		return add(itemset.toArray());
+	}
+
+	/** returns the id of the itemset made of the items of the itemset id plus item (not belonging to it), adding it if needed */
+	public int addWith(final int id, final int item)
+	{
+		final int length = length(id);
+		ensureItems(numItems + length + 1);
+
+		// merges item into the sorted items of id
+		int k = numItems;
+		int i = offsets[id];
+
+		while(i < offsets[id+1] && items[i] < item)
+			items[k++] = items[i++];
+
+		items[k++] = item;
+
+		while(i < offsets[id+1])
+			items[k++] = items[i++];
+
+		return intern(length+1, true);
+	}
+
+	/** returns the id of the itemset made of the items (sorted, without duplicates), -1 if it is not in the dictionary */
+	public int find(final int[] itemset)
+	{
+		write(itemset);
+
+		return intern(itemset.length, false);
+	}
+
+	/** number of itemsets */
+	public int size()
+	{
+		return size;
+	}
+
+	/** number of items of the itemset id */
+	public int length(final int id)
+	{
+		return offsets[id+1] - offsets[id];
+	}
+
+	/** returns the k-th smallest item of the itemset id */
+	public int item(final int id, final int k)
+	{
+		return items[offsets[id] + k];
+	}
+
+	/** returns the items of the itemset id, sorted */
+	public int[] get(final int id)
+	{
+		return Arrays.copyOfRange(items, offsets[id], offsets[id+1]);
+	}
+
+	public Itemset getItemset(final int id, final int support)
+	{
+		return new Itemset(get(id), support, id);
+	}
+
+	public boolean contains(final int id, final int item)
+	{
+		return Arrays.binarySearch(items, offsets[id], offsets[id+1], item) >= 0;
+	}
+
+	/** true if the itemset id contains all the items of the itemset subsetId */
+	public boolean containsAll(final int id, final int subsetId)
+	{
+		if(length(subsetId) > length(id))
+			return false;
+
+		int i = offsets[id];
+
+		for(int s=offsets[subsetId]; s<offsets[subsetId+1]; s++)
+		{
+			while(i < offsets[id+1] && items[i] < items[s])
+				i++;
+
+			if(i == offsets[id+1] || items[i] != items[s])
+				return false;
+
+			i++;
+		}
+
+		return true;
+	}
+
+	/** writes the itemset at the end of the packed items, without adding it */
+	private void write(final int[] itemset)
+	{
+		ensureItems(numItems + itemset.length);
+		System.arraycopy(itemset, 0, items, numItems, itemset.length);
+	}
+
+	/**
+	 * looks up the itemset of the given length written at the end of the packed items:
+	 * returns the id of the equal itemset in the dictionary if any, otherwise the id of the itemset just written if insert is true, -1 if it is false
+	 */
+	private int intern(final int length, final boolean insert)
+	{
+		int h = 1;
+
+		for(int k=numItems; k<numItems+length; k++)
+			h = 31*h + items[k];
+
+		final int mask = slots.length-1;
+		int slot = spread(h) & mask;
+
+		while(slots[slot] != 0)
+		{
+			final int id = slots[slot]-1;
+
+			if(hashes[id] == h && equal(id, length))
+				return id;
+
+			slot = (slot+1) & mask;
+		}
+
+		if(!insert)
+			return -1;
+
+		if(size == hashes.length)
+		{
+			hashes = Arrays.copyOf(hashes, 2*hashes.length);
+			offsets = Arrays.copyOf(offsets, hashes.length+1);
+		}
+
+		final int id = size++;
+		hashes[id] = h;
+		offsets[id] = numItems;
+		numItems += length;
+		offsets[size] = numItems;
+		slots[slot] = id+1;
+
+		if(2*size > slots.length)
+			rehash();
+
+		return id;
+	}
+
+	/** true if the itemset id is equal to the itemset of the given length written at the end of the packed items */
+	private boolean equal(final int id, final int length)
+	{
+		if(length(id) != length)
+			return false;
+
+		for(int i=offsets[id], k=numItems; k<numItems+length; i++, k++)
+			if(items[i] != items[k])
+				return false;
+
+		return true;
+	}
+
+	private void rehash()
+	{
+		slots = new int[2*slots.length];
+		final int mask = slots.length-1;
+
+		for(int id=0; id<size; id++)
+		{
+			int slot = spread(hashes[id]) & mask;
+
+			while(slots[slot] != 0)
+				slot = (slot+1) & mask;
+
+			slots[slot] = id+1;
+		}
+	}
+
+	private void ensureItems(final int capacity)
+	{
+		if(capacity > items.length)
+			items = Arrays.copyOf(items, Math.max(2*items.length, capacity));
+	}
+
+	/** spreads the bits of the hash, as the table size is a power of two */
+	private static int spread(int h)
+	{
+		h *= 0x9E3779B9;
+
+		return h ^ (h >>> 16);
+	}
+}
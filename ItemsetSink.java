@@ -0,0 +1,23 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+/**
+ * Receives the frequent itemsets as soon as a miner finds them (e.g. level by level with {@link Apriori}),
+ * so that they can be consumed without keeping all of them in memory.
+ * The itemsets are sent by the thread running the miner, one at a time; {@link ItemsetCollector} keeps them in a list.
+ */
+public interface ItemsetSink
+{
+	/**
+	 * called once for each frequent itemset
+	 *
+	 * @param itemset the items, sorted (the array is not modified by the miner afterwards, and must not be modified by the sink)
+	 * @param support the number of transactions containing the itemset
+	 */
+	void found(int[] itemset, int support);
+}
@@ -13,6 +13,7 @@ import gnu.trove.set.hash.TIntHashSet;
 
 import java.io.*;
 import java.util.*;
+import java.util.concurrent.*;
 
 public class MainClass
 {	
@@ -26,394 +27,424 @@ public class MainClass
 	private static String problem;
 	private static boolean showFrequentItemsets = false;
 	private static boolean showFrequencyConstraints = false;
+	private static String miningAlgorithm = "APRIORI";
+	private static int miningThreads = 0;
+	private static boolean writeTransactionalFile = false;
+	private static String itemsetsMode = "ALL";
+	private static boolean incrementalMining = false;
+	private static int maxItemsetLength = 0;
+	private static long memoryBudget = 0;
+	private static int sampleSize = 0;
+	private static double sampleConfidence = 0.99;
+	private static long sampleSeed = 0;
+	/** the dictionary of the codes of the values, if they are encoded */
+	private static String dictionaryName = null;
+	private static int partitionRows = 0;
+	private static int loadingThreads = 0;
+	private static boolean tableSnapshot = false;
+	private static boolean encodeValues = false;
+	private static boolean offHeapTable = false;
 	
-	private static Table buildTable()
+	private static Table buildTable() throws Exception
 	{		
-		final Map<Integer,Column<Integer>> sv_columns = new TreeMap<Integer,Column<Integer>>();
-		final Map<Integer,Column<TIntHashSet>> mv_columns = new TreeMap<Integer,Column<TIntHashSet>>();
+		final String transactionalFile = writeTransactionalFile ? "transactional_" + inputTableName : null;
 		
-		int cIndex = 0;
+		if(!tableSnapshot && !offHeapTable)
+			return TableLoader.load(inputTableName, attributes, loadingThreads, transactionalFile);
 		
-		for(int i=0; i<attributes.length-1; i++)
-		{
-			final String columnName = attributes[i];
-			i++;
-			final boolean isSingleValue = attributes[i].equals("sv") ? true : false;
-			
-			if(isSingleValue)
-				sv_columns.put(cIndex, new Column<Integer>(new ArrayList<Integer>(), columnName));
-			else
-				mv_columns.put(cIndex, new Column<TIntHashSet>(new ArrayList<TIntHashSet>(), columnName));
-			
-			cIndex++;
-		}
+		// the transactional file is only written while parsing the input table
+		final File snapshot = new File("snapshot_" + inputTableName);
 		
-		try
+		if(transactionalFile == null || new File(transactionalFile).exists())
 		{
-			final BufferedReader reader = new BufferedReader(new FileReader(inputTableName));
-			final File table = new File("transactional_" + inputTableName);
-			final FileOutputStream os = new FileOutputStream(table);
-			final PrintStream ps = new PrintStream(os);
-			
-			String line;			
-
-			while((line = reader.readLine()) != null)
-			{
-				final StringTokenizer st = new StringTokenizer(line, ";");
-				int columnIndex = 0;	
-				
-				while(st.hasMoreTokens())
-				{
-					final String attributeValue = st.nextToken().trim();
-					
-					if(sv_columns.containsKey(columnIndex))
-						sv_columns.get(columnIndex).getValues().add(Integer.parseInt(attributeValue));
-					else
-					{
-						final TIntHashSet set = new TIntHashSet();
-						final StringTokenizer st2 = new StringTokenizer(attributeValue, " ");
-						
-						while(st2.hasMoreTokens())
-							set.add(Integer.parseInt(st2.nextToken()));
-						
-						mv_columns.get(columnIndex).getValues().add(set);
-					}
-					
-					columnIndex++;
-				}
-				
-				ps.println(line.replace(";", " "));
-			}
+			final Table table = TableSnapshot.open(snapshot, inputTableName, attributes, offHeapTable);
 			
-			reader.close();
-			ps.close();
-			os.close();
-		}
-		catch (FileNotFoundException e)
-		{
-			e.printStackTrace();
-		}
-		catch (IOException e) 
-		{
-			e.printStackTrace();
+			if(table != null)
+				return table;
 		}
 		
-		final List<Column<Integer>> sv_list = new ArrayList<Column<Integer>>();
-		final List<Column<TIntHashSet>> mv_list = new ArrayList<Column<TIntHashSet>>();
+		Table table = TableLoader.load(inputTableName, attributes, loadingThreads, transactionalFile);
+		TableSnapshot.save(table, snapshot, inputTableName, attributes);
 		
-		for(final int i : sv_columns.keySet())
-			sv_list.add(sv_columns.get(i));
+		// the columns loaded on the heap are released, the off-heap table reads them from the snapshot
+		if(offHeapTable)
+			table = TableSnapshot.open(snapshot, inputTableName, attributes, true);
 		
-		for(final int i : mv_columns.keySet())
-			mv_list.add(mv_columns.get(i));
-		
-		Table table = new Table(sv_list, mv_list, inputTableName, attributes);
 		return table;
 	}
 	
 	
-	private static List<Itemset> computeFrequentItemsets(final double support, final String tableName)
+	// the algorithm actually run by computeFrequentItemsets: the incremental, the sampling and the partition mining only run the APRIORI algorithm
+	private static String miner()
+	{
+		if(incrementalMining || sampleSize > 0 || partitionRows > 0)
+			return "APRIORI";
+		
+		return miningAlgorithm;
+	}
+	
+	
+	private static List<Itemset> computeFrequentItemsets(final double support, final Table table)
 	{
-		final String[] parameters = {"transactional_" + tableName, support+""};//transactions file, support
-		Apriori apriori = null;
+		List<Itemset> frequentItemsets = null;
 	
 		try
 		{
-			apriori = new Apriori(parameters, showFrequentItemsets);
+			if(incrementalMining)
+				frequentItemsets = new IncrementalMiner(table, support, miningThreads, maxItemsetLength, memoryBudget, "incremental_" + inputTableName, dictionaryName, showFrequentItemsets).getItemsets();
+			else
+				if(sampleSize > 0)
+					frequentItemsets = new SamplingMiner(table, support, sampleSize, sampleConfidence, sampleSeed, miningThreads, maxItemsetLength, memoryBudget, showFrequentItemsets).getItemsets();
+				else
+					if(partitionRows > 0)
+						frequentItemsets = new PartitionMiner(inputTableName, attributes, support, partitionRows, miningThreads, maxItemsetLength, showFrequentItemsets).getItemsets();
+					else
+						if(miningAlgorithm.equals("ECLAT"))
+							frequentItemsets = new Eclat(table, support, maxItemsetLength, showFrequentItemsets).getItemsets();
+						else
+							if(miningAlgorithm.equals("FPGROWTH"))
+								frequentItemsets = new FPGrowth(table, support, maxItemsetLength, showFrequentItemsets).getItemsets();
+							else
+								frequentItemsets = new Apriori(table, support, miningThreads, maxItemsetLength, memoryBudget, showFrequentItemsets).getItemsets();
 		}
 		catch (Exception e)
 		{
 			e.printStackTrace();
 		}
 		
-		return apriori.getItemsets();
+		return frequentItemsets;
 	}
 	
 
-	private static List<Constraint> computeFC(final List<Itemset> frequentItemsets, final Table table, final double threshold, final double scale_factor)
+	private static List<Constraint> computeFC(final List<Itemset> frequentItemsets, final Table table, final double threshold, final double scale_factor) throws Exception
 	{
-		final List<Constraint> frequencyConstraints = new ArrayList<Constraint>();
-		int fcIndex = 0;
+		final List<Itemset> itemsets = new ArrayList<Itemset>();
 		
 		for(final Itemset itemset : frequentItemsets)
 		{
 			final double support = (double)itemset.getSupport()/(double)table.getSize();
 			
 			if(support >= threshold)
+				itemsets.add(itemset);
+		}
+		
+		return buildConstraints(itemsets.size(), table, new ConstraintFactory()
+		{
+			@Override
+			public Constraint create(final int fcIndex, final ConstraintBuilder builder)
 			{
-				final TObjectIntHashMap<String> singleValueAttributeConstraint = new TObjectIntHashMap<String>();
-				final Map<String,TIntHashSet> multiValueAttributeConstraint = new HashMap<String,TIntHashSet>();
-				
-				final List<Column<Integer>> sv_attributes = table.get_SV_attributes();
-				final List<Column<TIntHashSet>> mv_attributes = table.get_MV_attributes();
-
-				final TIntHashSet items = itemset.getElements();
+				final Itemset itemset = itemsets.get(fcIndex);
+				final Itemset.Cursor cursor = itemset.cursor();
 				
-				final TIntIterator iterator = items.iterator();
+				while(cursor.hasNext())
+					builder.add(cursor.next());
 				
-				while(iterator.hasNext())
-				{
-					final int i = iterator.next();
-					boolean isMV = true;
-					
-					for(final Column<Integer> column : sv_attributes)
-						if(table.domainSingleValueAttribute(column.getName()).contains(i))
-						{
-							singleValueAttributeConstraint.put(column.getName(), i);
-							isMV = false;
-							
-							break;
-						}
-					
-					if(isMV)
-						for(final Column<TIntHashSet> column : mv_attributes)
-							if(table.domainMultiValueAttribute(column.getName()).contains(i))
-							{
-								if(multiValueAttributeConstraint.containsKey(column.getName()))
-									multiValueAttributeConstraint.get(column.getName()).add(i);
-								else
-								{
-									final TIntHashSet set = new TIntHashSet();
-									set.add(i);
-									multiValueAttributeConstraint.put(column.getName(), set);
-								}
-								
-								break;
-							}
-				}
-			
 				final int bound = (int)((int)(itemset.getSupport())*scale_factor);
 				
-				frequencyConstraints.add(new Constraint("fc"+fcIndex, bound, bound, singleValueAttributeConstraint, multiValueAttributeConstraint));
-				fcIndex++;
+				return builder.build("fc"+fcIndex, bound, bound);
 			}
-		}
-		
-		return frequencyConstraints;
+		});
 	}
-
 	
-	private static Set<TIntHashSet> computeFrontier(final List<Itemset> frequentItemsets, final Table table, final double s)
+	
+	/** creates the constraint of an index, with the builder of the thread */
+	private interface ConstraintFactory
+	{
+		Constraint create(int index, ConstraintBuilder builder);
+	}
+	
+	
+	/** 
+	 * builds the constraints from their items, finding the attribute of each item through the index of the table
+	 * (see {@link Table#getSVAttributeOf(int)}); each thread has its own builder
+	 */
+	private static final class ConstraintBuilder
 	{
-		final Set<TIntHashSet> frontier = new HashSet<TIntHashSet>();
+		private final Table table;
+		private TObjectIntHashMap<String> singleValueAttributeConstraint = new TObjectIntHashMap<String>();
+		private Map<String,TIntHashSet> multiValueAttributeConstraint = new HashMap<String,TIntHashSet>();
 		
-		final List<Column<Integer>> sv_attributes = table.get_SV_attributes();
-		final List<Column<TIntHashSet>> mv_attributes = table.get_MV_attributes();
+		private ConstraintBuilder(final Table table)
+		{
+			this.table = table;
+		}
 		
-		for(final Column<Integer> svAtt : sv_attributes)
-			frontier.addAll(computeFrontierSvAttribute(frequentItemsets, table, s, svAtt));
-
-		for(final Column<TIntHashSet> mvAtt : mv_attributes)
-			frontier.addAll(computeFrontierMvAttribute(frequentItemsets, table, s, mvAtt));
+		/** adds an item to the constraint being built */
+		private void add(final int i)
+		{
+			final int sv = table.getSVAttributeOf(i);
+			
+			if(sv >= 0)
+				singleValueAttributeConstraint.put(table.getSVName(sv), i);
+			else
+			{
+				final int mv = table.getMVAttributeOf(i);
+				
+				if(mv >= 0)
+				{
+					if(multiValueAttributeConstraint.containsKey(table.getMVName(mv)))
+						multiValueAttributeConstraint.get(table.getMVName(mv)).add(i);
+					else
+					{
+						final TIntHashSet set = new TIntHashSet();
+						set.add(i);
+						multiValueAttributeConstraint.put(table.getMVName(mv), set);
+					}
+				}
+			}
+		}
 		
-		return frontier;
+		/** returns the constraint of the items added since the previous one */
+		private Constraint build(final String name, final int upperBound, final int lowerBound)
+		{
+			final Constraint constraint = new Constraint(name, upperBound, lowerBound, singleValueAttributeConstraint, multiValueAttributeConstraint);
+			
+			singleValueAttributeConstraint = new TObjectIntHashMap<String>();
+			multiValueAttributeConstraint = new HashMap<String,TIntHashSet>();
+			
+			return constraint;
+		}
 	}
 	
 	
-	private static Set<TIntHashSet> computeFrontierMvAttribute(final List<Itemset> frequentItemsets, final Table table, final double s, final Column<TIntHashSet> mvAtt)
+	/** 
+	 * creates the constraints of the indexes from 0 to n-1 in parallel (#MINING_THREADS threads), by ranges of consecutive indexes:
+	 * the constraint of an index is at that index of the list, whatever the thread creating it
+	 */
+	private static List<Constraint> buildConstraints(final int n, final Table table, final ConstraintFactory factory) throws Exception
 	{
-		final Set<TIntHashSet> frontier = new HashSet<TIntHashSet>();
-
-		for(final Itemset itemset : frequentItemsets)
+		final Constraint[] constraints = new Constraint[n];
+		final int numThreads = miningThreads > 0 ? miningThreads : Runtime.getRuntime().availableProcessors();
+		// about four ranges per thread, to balance the load between threads
+		final int rangeSize = Math.max(1024, n / (4*numThreads));
+		
+		if(numThreads == 1 || n <= rangeSize)
 		{
-			if((double)itemset.getSupport()/(double)table.getSize() >= s)
+			final ConstraintBuilder builder = new ConstraintBuilder(table);
+			
+			for(int i=0; i<n; i++)
+				constraints[i] = factory.create(i, builder);
+		}
+		else
+		{
+			final ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+			final ThreadLocal<ConstraintBuilder> builders = new ThreadLocal<ConstraintBuilder>()
 			{
-				final TIntHashSet setOfItems = itemset.getElements();
-				
-				final TIntHashSet domainMultiValueAttribute = new TIntHashSet(table.domainMultiValueAttribute(mvAtt.getName()));
-				domainMultiValueAttribute.removeAll(setOfItems);
-				
-				final TIntIterator iterator = domainMultiValueAttribute.iterator();
+				@Override
+				protected ConstraintBuilder initialValue()
+				{
+					return new ConstraintBuilder(table);
+				}
+			};
+			
+			try
+			{
+				final List<Future<?>> ranges = new ArrayList<Future<?>>();
 				
-				while(iterator.hasNext())
+				for(int start=0; start<n; start+=rangeSize)
 				{
-					final TIntHashSet newItemset = new TIntHashSet(setOfItems);
-					newItemset.add(iterator.next());
+					final int from = start;
+					final int to = Math.min(n, start+rangeSize);
 					
-					frontier.add(newItemset);
+					ranges.add(workers.submit(new Runnable()
+					{
+						@Override
+						public void run()
+						{
+							final ConstraintBuilder builder = builders.get();
+							
+							for(int i=from; i<to; i++)
+								constraints[i] = factory.create(i, builder);
+						}
+					}));
 				}
+				
+				for(final Future<?> range : ranges)
+					range.get();
+			}
+			finally
+			{
+				workers.shutdown();
 			}
 		}
+		
+		return new ArrayList<Constraint>(Arrays.asList(constraints));
+	}
 
-		TIntHashSet singleton;
-		final TIntIterator iterator = table.domainMultiValueAttribute(mvAtt.getName()).iterator();
+	
+	/**
+	 * computes the frontier, i.e. the minimal infrequent itemsets, as ids of the dictionary (sorted, i.e. in order of insertion):
+	 * the dictionary, empty at first, is filled with the frequent itemsets (ids from 0 to their number - 1) and with the candidates of the frontier.
+	 * With a maximum itemset length (greater than 0) the itemsets of that length are not extended, as the larger ones were never counted:
+	 * the frontier then holds the minimal infrequent itemsets of at most maxLength items
+	 */
+	private static int[] computeFrontier(final List<Itemset> frequentItemsets, final Table table, final double s, final int maxLength, final ItemsetDictionary dictionary)
+	{
+		final TIntHashSet frontier = new TIntHashSet();
 		
-		while(iterator.hasNext())
-		{
-			singleton = new TIntHashSet();
-			singleton.add(iterator.next());
-			frontier.add(singleton);
-		}		
-				
-		Set<TIntHashSet> copyOfFrontier = new HashSet<TIntHashSet>(frontier);
+		for(final Itemset itemset : frequentItemsets)
+			if((double)itemset.getSupport()/(double)table.getSize() >= s)
+				dictionary.add(itemset);
 		
-		for(final TIntHashSet itemset : copyOfFrontier)
-			for(final Itemset i : frequentItemsets)
-				if((double)i.getSupport()/(double)table.getSize()>=s && itemset.equals(new TIntHashSet(i.getElements())))
-				{
-					frontier.remove(itemset);
-					break;
-				}
+		final int numFrequent = dictionary.size();
 		
-		TIntHashSet[] array = frontier.toArray(new TIntHashSet[0]);
+		for(int c=0; c<table.getNumberOfSVAttributes(); c++)
+			frontier.addAll(computeFrontierSvAttribute(numFrequent, table, c, s, maxLength, dictionary));
+
+		for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+			frontier.addAll(computeFrontierMvAttribute(numFrequent, table, c, s, maxLength, dictionary));
 		
-		for(int i=0; i<array.length; i++)
-		{
-			boolean isMinimal = true;
+		final int[] ids = frontier.toArray();
+		Arrays.sort(ids);
+		
+		return ids;
+	}
+	
+	
+	/**
+	 * adds the infrequent values of the domain to the frontier, and returns the frequent ones (the values are the ones of the statistics of the table):
+	 * an itemset extended with an infrequent value is not minimal, as the value alone is infrequent
+	 */
+	private static TIntArrayList frequentValues(final int[] domain, final TableStatistics statistics, final double s, final TIntHashSet frontier, final ItemsetDictionary dictionary)
+	{
+		final TIntArrayList frequentValues = new TIntArrayList();
+		
+		for(final int item : domain)
+			if(statistics.isFrequent(item, s))
+				frequentValues.add(item);
+			else
+				frontier.add(dictionary.add(new int[]{item}));
+		
+		return frequentValues;
+	}
+	
+	
+	private static TIntArrayList computeFrontierMvAttribute(final int numFrequent, final Table table, final int c, final double s, final int maxLength, final ItemsetDictionary dictionary)
+	{
+		final TIntHashSet frontier = new TIntHashSet();
+		final TIntArrayList frequentValues = frequentValues(table.getStatistics().getMVValues(c), table.getStatistics(), s, frontier, dictionary);
 
-			for(int j=0; j<array.length; j++)
-				if(i != j)
-				{
-					if(ca(array[i],array[j]))
-					{
-						isMinimal = false;
-						break;
-					}
-				}
+		for(int itemset=0; itemset<numFrequent; itemset++)
+		{
+			if(isMaxLength(dictionary, itemset, maxLength))
+				continue;
 			
-			if(!isMinimal)
-				frontier.remove(array[i]);
+			for(int v=0; v<frequentValues.size(); v++)
+			{
+				final int item = frequentValues.get(v);
+				
+				if(!dictionary.contains(itemset, item))
+					frontier.add(dictionary.addWith(itemset, item));
+			}
 		}
 		
-		return frontier;
+		return minimalInfrequentItemsets(frontier, numFrequent, dictionary);
 	} 
 	
-	private static Set<TIntHashSet> computeFrontierSvAttribute(final List<Itemset> frequentItemsets, final Table table, final double s, final Column<Integer> svAtt)
+	private static TIntArrayList computeFrontierSvAttribute(final int numFrequent, final Table table, final int c, final double s, final int maxLength, final ItemsetDictionary dictionary)
 	{
-		final Set<TIntHashSet> frontier = new HashSet<TIntHashSet>();
+		final TIntHashSet frontier = new TIntHashSet();
+		final TIntHashSet domainSingleValueAttribute = table.getSVDomain(c);
+		final TIntArrayList frequentValues = frequentValues(table.getStatistics().getSVValues(c), table.getStatistics(), s, frontier, dictionary);
 		
-		for(final Itemset itemset : frequentItemsets)
+		for(int itemset=0; itemset<numFrequent; itemset++)
 		{
-			if((double)itemset.getSupport()/(double)table.getSize() >= s)
+			// an itemset with a value of the attribute cannot be extended with another one
+			if(!isMaxLength(dictionary, itemset, maxLength) && !containsAny(dictionary, itemset, domainSingleValueAttribute))
 			{
-				final TIntHashSet setOfItems = itemset.getElements();	
-				
-				final TIntHashSet domainSingleValueAttribute = new TIntHashSet(table.domainSingleValueAttribute(svAtt.getName()));
-				
-				if(!domainSingleValueAttribute.removeAll(setOfItems))
-				{
-					final TIntIterator iterator = domainSingleValueAttribute.iterator();
-
-					while(iterator.hasNext())
-					{
-						final TIntHashSet newItemset = new TIntHashSet(setOfItems);
-						newItemset.add(iterator.next());
-						
-						frontier.add(newItemset);
-					}
-				}
+				for(int v=0; v<frequentValues.size(); v++)
+					frontier.add(dictionary.addWith(itemset, frequentValues.get(v)));
 			}
 		}
-
-		TIntHashSet singleton;
-		final TIntIterator iterator = table.domainSingleValueAttribute(svAtt.getName()).iterator();
+		
+		return minimalInfrequentItemsets(frontier, numFrequent, dictionary);
+	}
+	
+	
+	/** true if the itemset id of the dictionary has the maximum itemset length (0 for no limit), so that its extensions were never counted */
+	private static boolean isMaxLength(final ItemsetDictionary dictionary, final int id, final int maxLength)
+	{
+		return maxLength > 0 && dictionary.length(id) >= maxLength;
+	}
+	
+	
+	/** true if the itemset id of the dictionary contains a value of the domain */
+	private static boolean containsAny(final ItemsetDictionary dictionary, final int id, final TIntHashSet domain)
+	{
+		for(int k=0; k<dictionary.length(id); k++)
+			if(domain.contains(dictionary.item(id, k)))
+				return true;
+		
+		return false;
+	}
+	
+	
+	/** 
+	 * removes the frequent itemsets from the candidates (the ids smaller than numFrequent), and then the candidates having another candidate as a subset;
+	 * as a candidate can only contain smaller ones, the candidates are sorted by size and compared with the preceding ones only
+	 */
+	private static TIntArrayList minimalInfrequentItemsets(final TIntHashSet candidates, final int numFrequent, final ItemsetDictionary dictionary)
+	{
+		// each candidate as its size (high bits) and its id (low bits), so that sorting them sorts the candidates by size
+		final long[] bySize = new long[candidates.size()];
+		int n = 0;
+		
+		final TIntIterator iterator = candidates.iterator();
 		
 		while(iterator.hasNext())
 		{
-			singleton = new TIntHashSet();
-			singleton.add(iterator.next());
-			frontier.add(singleton);
+			final int id = iterator.next();
+			
+			if(id >= numFrequent)
+				bySize[n++] = ((long) dictionary.length(id) << 32) | id;
 		}
 		
-		Set<TIntHashSet> copyOfFrontier = new HashSet<TIntHashSet>(frontier);
-		
-		for(final TIntHashSet itemset : copyOfFrontier)
-			for(final Itemset i : frequentItemsets)
-				if((double)i.getSupport()/(double)table.getSize()>=s && itemset.equals(new TIntHashSet(i.getElements())))
-				{
-					frontier.remove(itemset);
-					break;
-				}
+		Arrays.sort(bySize, 0, n);
 		
-		TIntHashSet[] array = frontier.toArray(new TIntHashSet[0]);
+		final TIntArrayList frontier = new TIntArrayList();
 		
-		for(int i=0; i<array.length; i++)
+		for(int i=0; i<n; i++)
 		{
+			final int id = (int) bySize[i];
 			boolean isMinimal = true;
 
-			for(int j=0; j<array.length; j++)
-				if(i != j)
+			for(int j=0; j<i && (bySize[j] >>> 32) < (bySize[i] >>> 32); j++)
+				if(dictionary.containsAll(id, (int) bySize[j]))
 				{
-					if(ca(array[i],array[j]))
-					{
-						isMinimal = false;
-						break;
-					}
+					isMinimal = false;
+					break;
 				}
 			
-			if(!isMinimal)
-				frontier.remove(array[i]);
+			if(isMinimal)
+				frontier.add(id);
 		}
 		
-		return frontier;  
-	}
-	
-	
-	private static boolean ca(TIntHashSet s1, TIntHashSet s2)
-	{
-		if(s1.size() < s2.size())
-			return false;
-		else
-			return s1.containsAll(s2);
+		return frontier;
 	}
 	
 	
-	private static List<Constraint> computeIC(final Set<TIntHashSet> frontier, final Table table, final double threshold, final double scale_factor)
+	private static List<Constraint> computeIC(final int[] frontier, final ItemsetDictionary dictionary, final Table table, final double threshold, final double scale_factor) throws Exception
 	{
-		final List<Constraint> infrequencyConstraints = new ArrayList<Constraint>();
-		int icIndex = 0;
-	
-		for(final TIntHashSet minimalInfrequentItemset : frontier)
-		{		
-			final TObjectIntHashMap<String> singleValueAttributeConstraint = new TObjectIntHashMap<String>();
-			final Map<String,TIntHashSet> multiValueAttributeConstraint = new HashMap<String,TIntHashSet>();
-			
-			final List<Column<Integer>> sv_attributes = table.get_SV_attributes();
-			final List<Column<TIntHashSet>> mv_attributes = table.get_MV_attributes();
-			
-			final TIntIterator iterator = minimalInfrequentItemset.iterator();
-			
-			while(iterator.hasNext())
+		int upperBound = (int)(((int)(threshold*table.getSize())) - 1);
+		
+		if(upperBound < 0)
+			upperBound = 0;
+		
+		final int bound = (int)(upperBound*scale_factor);
+		
+		return buildConstraints(frontier.length, table, new ConstraintFactory()
+		{
+			@Override
+			public Constraint create(final int icIndex, final ConstraintBuilder builder)
 			{
-				final int i = iterator.next();
-				boolean isMV = true;
+				final int minimalInfrequentItemset = frontier[icIndex];
 				
-				for(final Column<Integer> column : sv_attributes)
-					if(table.domainSingleValueAttribute(column.getName()).contains(i))
-					{
-						singleValueAttributeConstraint.put(column.getName(), i);
-						isMV = false;
-						
-						break;
-					}
+				for(int k=0; k<dictionary.length(minimalInfrequentItemset); k++)
+					builder.add(dictionary.item(minimalInfrequentItemset, k));
 				
-				if(isMV)
-					for(final Column<TIntHashSet> column : mv_attributes)
-						if(table.domainMultiValueAttribute(column.getName()).contains(i))
-						{
-							if(multiValueAttributeConstraint.containsKey(column.getName()))
-								multiValueAttributeConstraint.get(column.getName()).add(i);
-							else
-							{
-								final TIntHashSet set = new TIntHashSet();
-								set.add(i);
-								multiValueAttributeConstraint.put(column.getName(), set);
-							}
-							
-							break;
-						}
+				return builder.build("ic"+icIndex, bound, 0);
 			}
-			
-			int upperBound = (int)(((int)(threshold*table.getSize())) - 1);
-			
-			if(upperBound < 0)
-				upperBound = 0;
-			
-			infrequencyConstraints.add(new Constraint("ic"+icIndex, (int)(upperBound*scale_factor), 0, singleValueAttributeConstraint, multiValueAttributeConstraint));
-			icIndex++;
-		}
-		
-		return infrequencyConstraints;
+		});
 	}
 
 
@@ -481,6 +512,66 @@ public class MainClass
 															if(st.nextToken().equals("yes"))
 																showFrequencyConstraints = true;
 														}
+														else
+															if(parameter.equals("#MINING_ALGORITHM"))
+																miningAlgorithm = st.nextToken();
+															else
+																if(parameter.equals("#MINING_THREADS"))
+																	miningThreads = Integer.parseInt(st.nextToken());
+																else
+																	if(parameter.equals("#TRANSACTIONAL_FILE"))
+																	{
+																		if(st.nextToken().equals("yes"))
+																			writeTransactionalFile = true;
+																	}
+																	else
+																		if(parameter.equals("#ITEMSETS_MODE"))
+																			itemsetsMode = st.nextToken();
+																		else
+																			if(parameter.equals("#INCREMENTAL"))
+																			{
+																				if(st.nextToken().equals("yes"))
+																					incrementalMining = true;
+																			}
+																			else
+																				if(parameter.equals("#MAX_ITEMSET_LENGTH"))
+																					maxItemsetLength = Integer.parseInt(st.nextToken());
+																				else
+																					if(parameter.equals("#MEMORY_BUDGET"))
+																						memoryBudget = Long.parseLong(st.nextToken()) << 20;
+																					else
+																						if(parameter.equals("#SAMPLE_SIZE"))
+																							sampleSize = Integer.parseInt(st.nextToken());
+																						else
+																							if(parameter.equals("#SAMPLE_CONFIDENCE"))
+																								sampleConfidence = Double.parseDouble(st.nextToken());
+																							else
+																								if(parameter.equals("#PARTITION_ROWS"))
+																									partitionRows = Integer.parseInt(st.nextToken());
+																								else
+																									if(parameter.equals("#LOADING_THREADS"))
+																										loadingThreads = Integer.parseInt(st.nextToken());
+																									else
+																										if(parameter.equals("#TABLE_SNAPSHOT"))
+																										{
+																											if(st.nextToken().equals("yes"))
+																												tableSnapshot = true;
+																										}
+																										else
+																											if(parameter.equals("#ENCODE_VALUES"))
+																											{
+																												if(st.nextToken().equals("yes"))
+																													encodeValues = true;
+																											}
+																											else
+																												if(parameter.equals("#OFF_HEAP_TABLE"))
+																												{
+																													if(st.nextToken().equals("yes"))
+																														offHeapTable = true;
+																												}
+																												else
+																													if(parameter.equals("#SAMPLE_SEED"))
+																														sampleSeed = Long.parseLong(st.nextToken());
 				}
 			}
 			
@@ -509,13 +600,54 @@ public class MainClass
 						   "problem: "+problem);
 
 		
+		if(encodeValues)
+		{
+			// the values are replaced by integer codes, the encoding of a previous run is reused if the input table has not changed since
+			final File input = new File(inputTableName);
+			final File encoded = new File("encoded_" + inputTableName);
+			final File dictionary = new File("dictionary_" + inputTableName);
+			
+			if(encoded.lastModified() < input.lastModified() || dictionary.lastModified() < input.lastModified())
+			{
+				System.out.print("\nencoding the values of '" + inputTableName + "'...");
+				TableEncoder.encode(inputTableName, attributes, loadingThreads, encoded.getPath(), dictionary.getPath());
+				System.out.println(" done.");
+			}
+			
+			inputTableName = encoded.getPath();
+			dictionaryName = dictionary.getPath();
+		}
+		
 		final Table table = buildTable();
 		
-		System.out.print("\nrunning APRIORI algorithm on '" + inputTableName + "' with suppport " + minimumSupport + "...");
-		final List<Itemset> frequentItemsets = computeFrequentItemsets(minimumSupport, inputTableName);
+		// a random seed of the sample is printed before the progress line, so that the run can be repeated with #SAMPLE_SEED
+		if(!incrementalMining && sampleSize > 0 && sampleSeed == 0)
+		{
+			sampleSeed = new Random().nextLong();
+			System.out.println("\nseed of the sample: " + sampleSeed);
+		}
+		
+		if(!miner().equals(miningAlgorithm))
+			System.out.println("\nthe " + miningAlgorithm + " algorithm is ignored: the " + miner() + " algorithm is run instead");
+		
+		System.out.print("\nrunning " + miner() + " algorithm on '" + inputTableName + "' with suppport " + minimumSupport + "...");
+		final List<Itemset> frequentItemsets = computeFrequentItemsets(minimumSupport, table);
 		System.out.println(" done.");
 		
-		final List<Constraint> frequencyConstraints = computeFC(frequentItemsets, table, minimumSupport, scaleFactor);
+		// the frequency constraints may be built from a condensed representation of the frequent itemsets,
+		// while the frontier always needs all the frequent itemsets
+		List<Itemset> constrainedItemsets = frequentItemsets;
+		
+		if(itemsetsMode.equals("CLOSED"))
+			constrainedItemsets = CondensedItemsets.closed(frequentItemsets);
+		else
+			if(itemsetsMode.equals("MAXIMAL"))
+				constrainedItemsets = CondensedItemsets.maximal(frequentItemsets);
+		
+		if(constrainedItemsets != frequentItemsets)
+			System.out.println("#" + itemsetsMode.toLowerCase() + " itemsets: " + constrainedItemsets.size() + " out of " + frequentItemsets.size() + " frequent itemsets");
+		
+		final List<Constraint> frequencyConstraints = computeFC(constrainedItemsets, table, minimumSupport, scaleFactor);
 		System.out.println("#frequency constraints: " + frequencyConstraints.size());
 
 		if(frequencyConstraints.size() > 0)
@@ -524,8 +656,9 @@ public class MainClass
 			
 			if(problem.equals("IFM_I"))
 			{
-				final Set<TIntHashSet> frontier = computeFrontier(frequentItemsets, table, minimumSupport);
-				infrequencyConstraints = computeIC(frontier, table, minimumSupport, scaleFactor);
+				final ItemsetDictionary dictionary = new ItemsetDictionary();
+				final int[] frontier = computeFrontier(frequentItemsets, table, minimumSupport, maxItemsetLength, dictionary);
+				infrequencyConstraints = computeIC(frontier, dictionary, table, minimumSupport, scaleFactor);
 				System.out.println("#infrequency constraints: " + infrequencyConstraints.size());
 			}
 			else
@@ -549,15 +682,16 @@ public class MainClass
 			
 			System.out.println("done in " + (end-start) + " ms");
 			
-			final TObjectDoubleHashMap<TIntArrayList> outputTable = solver.getOutputTable();
+			final TObjectDoubleHashMap<Itemset> outputTable = solver.getOutputTable();
 			
-			final File output = new File(outputTableName + "_" + minimumSupport);
-			final FileOutputStream os2 = new FileOutputStream(output);
-			final PrintStream ps2 = new PrintStream(os2);
+			TableWriter.write(outputTable, outputTableName + "_" + minimumSupport);
 			
-			ps2.print(outputTable.toString());
-			ps2.close();
-			os2.close();
+			if(dictionaryName != null)
+			{
+				final TableDecoder decoder = new TableDecoder(dictionaryName);
+				decoder.decode(outputTable, table, attributes, outputTableName + "_" + minimumSupport + "_decoded");
+				decoder.close();
+			}
 		}
 	}
 
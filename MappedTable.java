@@ -0,0 +1,108 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.nio.IntBuffer;
+
+/**
+ * A {@link Table} whose columns are off the heap, read from memory-mapped regions of a file (the columns of a {@link TableSnapshot}):
+ * the operating system pages them in and out, so a large table neither needs a large heap nor is scanned by the garbage collector.
+ * Only the names and the domains of the attributes are on the heap.
+ *
+ * Each column is a sequence of little endian integers, split into regions of {@link #REGION_INTS} integers (the last one may be shorter),
+ * in the same layout as the columns of a table on the heap: the values of each row for a single value attribute;
+ * the offsets and the values of the rows for a multi value attribute.
+ */
+public class MappedTable extends Table
+{
+	/** the number of integers of a mapped region of a column */
+	static final int REGION_INTS = 1 << 28;
+	private static final int REGION_SHIFT = 28;
+	private static final int REGION_MASK = REGION_INTS - 1;
+
+	/** svValues[c][i] is the i-th region of the values of the c-th single value attribute */
+	private final IntBuffer[][] svValues;
+	private final IntBuffer[][] mvOffsets;
+	private final IntBuffer[][] mvValues;
+
+	/**
+	 * @param svValues svValues[c] holds the regions of the value of each row for the single value attribute svNames[c]
+	 * @param mvOffsets mvOffsets[c] holds the regions of the offsets (number of rows + 1) of the multi value attribute mvNames[c] in mvValues[c]
+	 * @param mvValues mvValues[c] holds the regions of the values of each row for the multi value attribute mvNames[c], each row sorted and without duplicates
+	 * @param svDomainValues svDomainValues[c] holds the values of the single value attribute svNames[c], without duplicates (the same for mvDomainValues)
+	 */
+	public MappedTable(final String[] svNames, final IntBuffer[][] svValues, final String[] mvNames, final IntBuffer[][] mvOffsets, final IntBuffer[][] mvValues, final int size, final int[][] svDomainValues, final int[][] mvDomainValues, final String tableName, final String[] attributes)
+	{
+		super(svNames, mvNames, size, svDomainValues, mvDomainValues, tableName, attributes);
+
+		this.svValues = svValues;
+		this.mvOffsets = mvOffsets;
+		this.mvValues = mvValues;
+	}
+
+	private static int get(final IntBuffer[] regions, final int i)
+	{
+		return regions[i >>> REGION_SHIFT].get(i & REGION_MASK);
+	}
+
+	/** copies n integers from the regions to the heap */
+	private static int[] toArray(final IntBuffer[] regions, final int n)
+	{
+		final int[] values = new int[n];
+
+		for(int i=0; i<n; )
+		{
+			final int count = Math.min(n-i, REGION_INTS);
+			final IntBuffer region = regions[i >>> REGION_SHIFT].duplicate();
+
+			region.position(0);
+			region.get(values, i, count);
+			i += count;
+		}
+
+		return values;
+	}
+
+	@Override
+	public int getSVValue(final int c, final int row)
+	{
+		return get(svValues[c], row);
+	}
+
+	/** a copy on the heap of the values of the c-th single value attribute, one per row */
+	@Override
+	public int[] getSVColumn(final int c)
+	{
+		return toArray(svValues[c], getSize());
+	}
+
+	@Override
+	public int getMVSize(final int c, final int row)
+	{
+		return get(mvOffsets[c], row+1) - get(mvOffsets[c], row);
+	}
+
+	@Override
+	public int getMVValue(final int c, final int row, final int k)
+	{
+		return get(mvValues[c], get(mvOffsets[c], row) + k);
+	}
+
+	/** a copy on the heap of the offsets of the rows of the c-th multi value attribute, number of rows + 1 */
+	@Override
+	public int[] getMVOffsets(final int c)
+	{
+		return toArray(mvOffsets[c], getSize()+1);
+	}
+
+	/** a copy on the heap of the values of the c-th multi value attribute, all the rows one after the other */
+	@Override
+	public int[] getMVValues(final int c)
+	{
+		return toArray(mvValues[c], get(mvOffsets[c], getSize()));
+	}
+}
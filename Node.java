@@ -1,9 +1,66 @@
 
-import gnu.trove.map.hash.TLongObjectHashMap;
+import gnu.trove.map.hash.TIntObjectHashMap;
 
-
-public class Node 
+/**
+ * node of a prefix trie of candidate itemsets (sorted arrays of items):
+ * each candidate is the path from the root to the node storing its index.
+ * Given a transaction, the trie enumerates only the candidates contained in it.
+ */
+public class Node
 {
-	boolean set = false;
-	TLongObjectHashMap<TLongObjectHashMap<Node>> map = new TLongObjectHashMap<TLongObjectHashMap<Node>>();
+	/** index of the candidate ending in this node, -1 if no candidate ends here */
+	int candidate = -1;
+	/** minimum number of items to be read below this node to reach a candidate */
+	int need = Integer.MAX_VALUE;
+	TIntObjectHashMap<Node> children;
+
+	/** adds the candidate itemset (sorted, without duplicates) with the given index */
+	public void insert(final int[] itemset, final int index)
+	{
+		Node node = this;
+
+		for(int d=0; d<itemset.length; d++)
+		{
+			if(node.need > itemset.length-d)
+				node.need = itemset.length-d;
+
+			if(node.children == null)
+				node.children = new TIntObjectHashMap<Node>();
+
+			Node child = node.children.get(itemset[d]);
+
+			if(child == null)
+			{
+				child = new Node();
+				node.children.put(itemset[d], child);
+			}
+
+			node = child;
+		}
+
+		node.candidate = index;
+	}
+
+	/** increments count[c] for each candidate c contained in the transaction (sorted, without duplicates) */
+	public void count(final int[] transaction, final int[] count)
+	{
+		count(transaction, 0, count);
+	}
+
+	private void count(final int[] transaction, final int from, final int[] count)
+	{
+		if(candidate >= 0)
+			count[candidate]++;
+
+		if(children == null)
+			return;
+
+		for(int i=from; transaction.length-i >= need; i++)
+		{
+			final Node child = children.get(transaction[i]);
+
+			if(child != null)
+				child.count(transaction, i+1, count);
+		}
+	}
 }
@@ -0,0 +1,277 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.io.*;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Partition-based mining of the frequent itemsets of an input table file (SON algorithm), for tables that do not fit in memory.
+ *
+ * The file is streamed twice, in partitions of a given number of rows:
+ *  - phase one mines the frequent itemsets of each partition with {@link Apriori}, at the same minimum support.
+ *    An itemset frequent in the whole table is frequent in at least one partition, so the union of the local frequent itemsets
+ *    contains all the frequent itemsets.
+ *  - phase two counts the support of these candidates in all the partitions, and keeps the frequent ones.
+ * The partitions are processed by a fixed number of workers, and a partition is read only when a worker is free,
+ * so at most one partition per worker (plus the next ones, read ahead) is in memory, whatever the size of the table.
+ */
+public class PartitionMiner
+{
+	private List<Itemset> itmsts = new ArrayList<Itemset>();
+	/** singleValue[c] is true if the c-th attribute of the table is single value */
+	private final boolean[] singleValue;
+	/** minimum support for a frequent itemset in percentage, e.g. 0.8 */
+	private final double minSup;
+	/** number of rows of a partition */
+	private final int partitionRows;
+	/** maximum number of items of a frequent itemset (0 for no limit) */
+	private final int maxItemsetLength;
+	private final boolean showFrequentItemsets;
+
+	/** total number of transactions, i.e. of rows of the table */
+	private int numTransactions = 0;
+	private int numPartitions = 0;
+	/** the partition following the one being returned by {@link #nextPartition(BufferedReader)}, if already read */
+	private Transactions readAhead;
+
+	private final ExecutorService workers;
+	/** one permit per worker: a partition is read only after acquiring a permit, released once the partition is processed */
+	private final Semaphore freeWorkers;
+
+	/**
+	 * computes the frequent itemsets of the input table file, reading it twice by partitions
+	 *
+	 * @param attributes the names of the attributes of the table, each one followed by 'sv' (single value) or 'mv' (multi value)
+	 * @param minSup the min support (e.g. 0.8 for 80%)
+	 * @param partitionRows the number of rows of a partition
+	 * @param numWorkers the number of partitions processed at the same time (0 for as many as the available processors)
+	 * @param maxItemsetLength the maximum number of items of a frequent itemset (0 for no limit)
+	 */
+	public PartitionMiner(String inputTableName, String[] attributes, double minSup, int partitionRows, int numWorkers, int maxItemsetLength, boolean showFrequentItemsets) throws Exception
+	{
+		if (minSup>1 || minSup<0) throw new Exception("minSup: bad value");
+		if (partitionRows<=0) throw new Exception("partitionRows: bad value");
+
+		this.minSup = minSup;
+		this.partitionRows = partitionRows;
+		this.maxItemsetLength = maxItemsetLength;
+		this.showFrequentItemsets = showFrequentItemsets;
+
+		singleValue = new boolean[attributes.length/2];
+
+		for(int c=0; c<singleValue.length; c++)
+			singleValue[c] = attributes[2*c+1].equals("sv");
+
+		if(numWorkers <= 0)
+			numWorkers = Runtime.getRuntime().availableProcessors();
+
+		workers = Executors.newFixedThreadPool(numWorkers);
+		freeWorkers = new Semaphore(numWorkers);
+
+		final long start = System.currentTimeMillis();
+
+		try
+		{
+			final List<int[]> candidates = minePartitions(inputTableName);
+
+			log("Found " + candidates.size() + " locally frequent itemsets in " + numPartitions + " partitions of " + partitionRows + " rows (" + numWorkers + " workers)");
+
+			countCandidates(inputTableName, candidates);
+		}
+		finally
+		{
+			workers.shutdown();
+		}
+
+		if(showFrequentItemsets)
+		{
+			log("Execution time is: "+((double)(System.currentTimeMillis()-start)/1000) + " seconds.");
+			log("Found "+itmsts.size()+ " frequents sets for support "+(minSup*100)+"% (absolute "+Math.round(numTransactions*minSup)+")");
+		}
+	}
+
+
+	public List<Itemset> getItemsets()
+	{
+		return itmsts;
+	}
+
+
+	/** phase one: returns the union of the frequent itemsets of the partitions, sorted by size and then lexicographically */
+	private List<int[]> minePartitions(final String inputTableName) throws Exception
+	{
+		final Set<Itemset> union = Collections.synchronizedSet(new HashSet<Itemset>());
+		final List<Future<?>> tasks = new ArrayList<Future<?>>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(TableLoader.open(inputTableName)));
+
+		try
+		{
+			Transactions partition;
+
+			while((partition = nextPartition(reader)) != null)
+			{
+				numTransactions += partition.size();
+				numPartitions++;
+
+				final Transactions transactions = partition;
+
+				tasks.add(workers.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call() throws Exception
+					{
+						try
+						{
+							union.addAll(new Apriori(transactions, minSup, 1, maxItemsetLength, 0, false, false).getItemsets());
+						}
+						finally
+						{
+							freeWorkers.release();
+						}
+
+						return null;
+					}
+				}));
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		for(final Future<?> task : tasks)
+			task.get();
+
+		final List<int[]> candidates = new ArrayList<int[]>(union.size());
+
+		for(final Itemset itemset : union)
+			candidates.add(itemset.toArray());
+
+		Collections.sort(candidates, new Comparator<int[]>()
+		{
+			@Override
+			public int compare(final int[] X, final int[] Y)
+			{
+				if(X.length != Y.length)
+					return X.length - Y.length;
+
+				for(int s=0; s<X.length; s++)
+					if(X[s] != Y[s])
+						return X[s] < Y[s] ? -1 : 1;
+
+				return 0;
+			}
+		});
+
+		return candidates;
+	}
+
+
+	/** phase two: counts the support of the candidates in all the partitions, and keeps the frequent ones */
+	private void countCandidates(final String inputTableName, final List<int[]> candidates) throws Exception
+	{
+		final Node trie = new Node();
+
+		for(int c=0; c<candidates.size(); c++)
+			trie.insert(candidates.get(c), c);
+
+		final int[] supports = new int[candidates.size()];
+		final List<Future<?>> tasks = new ArrayList<Future<?>>();
+		final BufferedReader reader = new BufferedReader(new InputStreamReader(TableLoader.open(inputTableName)));
+
+		try
+		{
+			Transactions partition;
+
+			while((partition = nextPartition(reader)) != null)
+			{
+				final Transactions transactions = partition;
+
+				tasks.add(workers.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call() throws Exception
+					{
+						try
+						{
+							// the trie is only read, so it is shared by the workers
+							final int[] count = new int[supports.length];
+
+							for(int t=0; t<transactions.size(); t++)
+								trie.count(transactions.get(t), count);
+
+							synchronized(supports)
+							{
+								for(int c=0; c<count.length; c++)
+									supports[c] += count[c];
+							}
+						}
+						finally
+						{
+							freeWorkers.release();
+						}
+
+						return null;
+					}
+				}));
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		for(final Future<?> task : tasks)
+			task.get();
+
+		for(int c=0; c<candidates.size(); c++)
+			if((supports[c] / (double) numTransactions) >= minSup)
+				itmsts.add(new Itemset(candidates.get(c), supports[c], itmsts.size()));
+	}
+
+
+	/** 
+	 * waits for a free worker, and reads the next partition (null at the end of the file, the worker is then released);
+	 * the last partition is merged into the previous one if it has less than half the rows, as too many itemsets would be frequent in it
+	 */
+	private Transactions nextPartition(final BufferedReader reader) throws Exception
+	{
+		freeWorkers.acquire();
+
+		Transactions partition = readAhead != null ? readAhead : Transactions.readTable(reader, singleValue, partitionRows);
+		readAhead = null;
+
+		if(partition.size() == 0)
+		{
+			freeWorkers.release();
+			return null;
+		}
+
+		if(partition.size() == partitionRows)
+		{
+			readAhead = Transactions.readTable(reader, singleValue, partitionRows);
+
+			if(readAhead.size() < partitionRows/2)
+			{
+				partition = partition.append(readAhead);
+				readAhead = null;
+			}
+		}
+
+		return partition;
+	}
+
+
+	/** outputs a message in Sys.err */
+	private void log(String message)
+	{
+		if(showFrequentItemsets)
+			System.err.println(message);
+	}
+}
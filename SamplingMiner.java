@@ -0,0 +1,162 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/**
+ * Sampling-based mining of the frequent itemsets of a table (Toivonen's algorithm).
+ *
+ * The frequent itemsets of a random sample of the rows are mined with {@link Apriori} at a lowered minimum support,
+ * minSup - sqrt(ln(1/delta) / (2 sampleSize)) where 1-delta is the requested confidence, so that an itemset frequent in the table
+ * is frequent in the sample as well with probability at least 1-delta.
+ * The supports of these itemsets and of their negative border (the infrequent itemsets whose subsets are all frequent in the sample)
+ * are then counted in a single pass over all the rows: if no itemset of the border is frequent, no other itemset can be frequent
+ * (each one would have a subset in the border), so the frequent itemsets are exactly the ones found, with their exact supports.
+ * Otherwise some frequent itemsets may have been missed, and all the rows are mined again with {@link Apriori}.
+ */
+public class SamplingMiner
+{
+	private List<Itemset> itmsts = new ArrayList<Itemset>();
+	/** minimum support for a frequent itemset in percentage, e.g. 0.8 */
+	private final double minSup;
+	private final int numThreads;
+	/** maximum number of items of a frequent itemset (0 for no limit) */
+	private final int maxItemsetLength;
+	private final long memoryBudget;
+	private final boolean showFrequentItemsets;
+
+	/**
+	 * computes the frequent itemsets of the table from a random sample of its rows, verified on all the rows
+	 *
+	 * @param minSup the min support (e.g. 0.8 for 80%)
+	 * @param sampleSize the number of rows of the sample
+	 * @param confidence the probability (e.g. 0.99) that the sample misses no frequent itemset, so that the rows are not mined again
+	 * @param seed the seed of the random sample (0 for a random seed, logged so that the sample can be drawn again)
+	 * @param numThreads the number of threads counting the support of the candidates (0 for as many as the available processors)
+	 * @param maxItemsetLength the maximum number of items of a frequent itemset (0 for no limit)
+	 * @param memoryBudget the memory budget of the candidates of a level (see {@link Apriori})
+	 */
+	public SamplingMiner(Table table, double minSup, int sampleSize, double confidence, long seed, int numThreads, int maxItemsetLength, long memoryBudget, boolean showFrequentItemsets) throws Exception
+	{
+		if (sampleSize<=0) throw new Exception("sampleSize: bad value");
+		if (confidence>=1 || confidence<=0) throw new Exception("confidence: bad value");
+
+		this.minSup = minSup;
+		this.numThreads = numThreads;
+		this.maxItemsetLength = maxItemsetLength;
+		this.memoryBudget = memoryBudget;
+		this.showFrequentItemsets = showFrequentItemsets;
+
+		final long start = System.currentTimeMillis();
+		final Transactions transactions = Transactions.fromTable(table);
+		final double lowerMinSup = minSup - Math.sqrt(Math.log(1/(1-confidence)) / (2*sampleSize));
+
+		if(sampleSize >= transactions.size())
+		{
+			log("The sample would contain all the " + transactions.size() + " rows: mining all the rows");
+			mine(transactions);
+		}
+		else
+			if(lowerMinSup <= 0)
+			{
+				log("The sample of " + sampleSize + " rows is too small for the minimum support " + minSup + ": mining all the rows");
+				mine(transactions);
+			}
+			else
+			{
+				// a random seed is always logged, so that the run can be repeated with #SAMPLE_SEED
+				if(seed == 0)
+				{
+					seed = new Random().nextLong();
+					log("The seed of the sample is " + seed);
+				}
+
+				if(!mineSample(transactions, transactions.sample(sampleSize, new Random(seed)), lowerMinSup))
+					mine(transactions);
+			}
+
+		if(showFrequentItemsets)
+			log("Execution time is: "+((double)(System.currentTimeMillis()-start)/1000) + " seconds.");
+	}
+
+
+	public List<Itemset> getItemsets()
+	{
+		return itmsts;
+	}
+
+
+	/** mines all the rows */
+	private void mine(final Transactions transactions) throws Exception
+	{
+		itmsts = new Apriori(transactions, minSup, numThreads, maxItemsetLength, memoryBudget, false, showFrequentItemsets).getItemsets();
+	}
+
+
+	/**
+	 * mines the sample at the lowered minimum support, and counts the itemsets found and their negative border in all the rows
+	 *
+	 * @return false if an itemset of the negative border is frequent, i.e. the rows have to be mined again
+	 */
+	private boolean mineSample(final Transactions transactions, final Transactions sample, final double lowerMinSup) throws Exception
+	{
+		log("Mining a sample of " + sample.size() + " rows out of " + transactions.size() + " with minimum support " + lowerMinSup);
+
+		final Apriori apriori = new Apriori(sample, lowerMinSup, numThreads, maxItemsetLength, memoryBudget, true, showFrequentItemsets);
+
+		// the itemsets found, then their negative border, then the items not occurring in the sample (not even candidates there)
+		final List<Itemset> candidates = new ArrayList<Itemset>(apriori.getItemsets());
+		final int numFound = candidates.size();
+		candidates.addAll(apriori.getNegativeBorder());
+
+		for(int i=sample.getNumItems(); i<transactions.getNumItems(); i++)
+			candidates.add(new Itemset(new int[]{i}, 0, -1));
+
+		final int[][] items = new int[candidates.size()][];
+		final Node trie = new Node();
+
+		for(int c=0; c<candidates.size(); c++)
+		{
+			items[c] = candidates.get(c).toArray();
+			trie.insert(items[c], c);
+		}
+
+		final int[] count = new int[candidates.size()];
+
+		for(int t=0; t<transactions.size(); t++)
+			trie.count(transactions.get(t), count);
+
+		final List<Itemset> frequent = new ArrayList<Itemset>();
+
+		for(int c=0; c<candidates.size(); c++)
+			if((count[c] / (double) transactions.size()) >= minSup)
+			{
+				if(c >= numFound)
+				{
+					log("The itemset " + Arrays.toString(items[c]) + " of the negative border of the sample is frequent: mining all the rows");
+					return false;
+				}
+
+				frequent.add(new Itemset(items[c], count[c], frequent.size()));
+			}
+
+		log("Verified " + candidates.size() + " itemsets of the sample in a single pass: " + frequent.size() + " frequent itemsets");
+
+		itmsts = frequent;
+
+		return true;
+	}
+
+
+	/** outputs a message in Sys.err */
+	private void log(String message)
+	{
+		if(showFrequentItemsets)
+			System.err.println(message);
+	}
+}
@@ -34,13 +34,15 @@ public class Solver
 	private final Map<String,IloRange> constraints8 = new HashMap<String,IloRange>();//infrequency constraints
 	private final Map<String,IloRange> sizeConstraints = new HashMap<String,IloRange>();
 	private final Map<String,TIntObjectHashMap<IloIntVar>> variables = new HashMap<String,TIntObjectHashMap<IloIntVar>>();//key: column name, value: mapping value-->CPLEX variable
-	private final Map<IloNumVar,TIntArrayList> transactions = new HashMap<IloNumVar,TIntArrayList>();//key: x; value: itemsets => index=0 --> SV attribute, index>0 --> MV attribute
-	private TIntObjectHashMap<TIntArrayList> lastTransactions;
+	private final TObjectIntHashMap<IloNumVar> transactions = new TObjectIntHashMap<IloNumVar>();//key: x; value: the id of the transaction in transactionDictionary
+	/** the transactions generated by the column generation, each one interned once however many times it is generated */
+	private final ItemsetDictionary transactionDictionary = new ItemsetDictionary();
+	private int[] lastTransactions;
 	private int xIndex = 0;
 	private IloLinearNumExpr reducedCosts;
 	private final double scale_factor;
 	private final long start;
-	private TObjectDoubleHashMap<TIntArrayList> outputTable = new TObjectDoubleHashMap<TIntArrayList>();
+	private TObjectDoubleHashMap<Itemset> outputTable = new TObjectDoubleHashMap<Itemset>();
 	private IloObjective objectiveILP;
 	private IloRange rc;
 	private final Set<String> emptySet;
@@ -62,11 +64,11 @@ public class Solver
 		scale_factor = scaleFactor;
 		this.start = start;
 		
-		for(final Column<Integer> svColumn : table.get_SV_attributes())
-			variables.put(svColumn.getName(), new TIntObjectHashMap<IloIntVar>());
+		for(int c=0; c<table.getNumberOfSVAttributes(); c++)
+			variables.put(table.getSVName(c), new TIntObjectHashMap<IloIntVar>());
 		
-		for(final Column<TIntHashSet> mvColumn : table.get_MV_attributes())
-			variables.put(mvColumn.getName(), new TIntObjectHashMap<IloIntVar>());
+		for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+			variables.put(table.getMVName(c), new TIntObjectHashMap<IloIntVar>());
 		
 		this.emptySet = new HashSet<String>(emptySet);
 		
@@ -81,93 +83,69 @@ public class Solver
 	{
 		Table toReturn = null;
 		
-		final List<Column<Integer>> singleValueAttributes = new ArrayList<Column<Integer>>();
-		final List<Column<TIntHashSet>> multiValueAttributes = new ArrayList<Column<TIntHashSet>>();
+		final TIntArrayList[] svValues = new TIntArrayList[table.getNumberOfSVAttributes()];
+		final TIntArrayList[] mvOffsets = new TIntArrayList[table.getNumberOfMVAttribute()];
+		final TIntArrayList[] mvValues = new TIntArrayList[table.getNumberOfMVAttribute()];
 		
-		for(final Column<Integer> svAttribute : table.get_SV_attributes())
-			singleValueAttributes.add(new Column<Integer>(new ArrayList<Integer>(), svAttribute.getName()));
+		for(int c=0; c<svValues.length; c++)
+			svValues[c] = new TIntArrayList();
 		
-		for(final Column<TIntHashSet> mvAttribute : table.get_MV_attributes())
-			multiValueAttributes.add(new Column<TIntHashSet>(new ArrayList<TIntHashSet>(), mvAttribute.getName()));
+		for(int c=0; c<mvValues.length; c++)
+		{
+			mvOffsets[c] = new TIntArrayList();
+			mvOffsets[c].add(0);
+			mvValues[c] = new TIntArrayList();
+		}
 		
 		try
 		{			
-			final File newTable = new File(outputTableName + "_" + support);
-			final FileOutputStream os = new FileOutputStream(newTable);
-			final PrintStream ps = new PrintStream(os);
-			
 			for(final IloNumVar x : transactions.keySet())
 			{
 				final double duplicates = cplex.getValue(x);
 				
 				if(duplicates > 0)
 				{
-					final TIntArrayList transaction = transactions.get(x);
+					final int transaction = transactions.get(x);
 					
 					for(int i=0; i<Math.round(duplicates); i++)
 					{	
-						for(final Column<TIntHashSet> column : multiValueAttributes)
-							column.getValues().add(new TIntHashSet());
-
-						TIntIterator iterator = transaction.iterator();
-						
-						while(iterator.hasNext())
+						// the items of the transaction are sorted, so are the values of each multi value attribute
+						for(int k=0; k<transactionDictionary.length(transaction); k++)
 						{
-							int value = iterator.next();							
-							ps.print(value + " ");
-							
-							boolean isSV = false;
+							int value = transactionDictionary.item(transaction, k);							
 							
-							for(final Column<Integer> svAttribute : table.get_SV_attributes())
-								if(svAttribute.getValues().contains(value))
-								{
-									for(final Column<Integer> svAtt : singleValueAttributes)
-										if(svAttribute.getName().equals(svAtt.getName()))
-										{
-											svAtt.getValues().add(value);
-											break;
-										}
-									
-									isSV = true;
-									break;
-								}
+							final int sv = table.getSVAttributeOf(value);
 							
-							if(!isSV)
-								for(final Column<TIntHashSet> mvAttribute : table.get_MV_attributes())
-									if(table.domainMultiValueAttribute(mvAttribute.getName()).contains(value))
-									{
-										for(final Column<TIntHashSet> mvAtt : multiValueAttributes)
-											if(mvAtt.getName().equals(mvAttribute.getName()))
-											{
-												final List<TIntHashSet> values = mvAtt.getValues();
-												values.get(values.size()-1).add(value);
-													
-												break;
-											}
-										
-										isSV = true;
-										break;
-									}
-
+							if(sv >= 0)
+								svValues[sv].add(value);
+							else
+							{
+								final int mv = table.getMVAttributeOf(value);
+								
+								if(mv >= 0)
+									mvValues[mv].add(value);
+							}
 						}
 						
-						ps.print("\n");
+						for(int c=0; c<mvValues.length; c++)
+							mvOffsets[c].add(mvValues[c].size());
 					}
 				}
 			}
-			
-			ps.close();
-			os.close();
 
-			toReturn = new Table(singleValueAttributes, multiValueAttributes, outputTableName + "_" + support, args);
+			final String[] svNames = new String[svValues.length];
+			final String[] mvNames = new String[mvValues.length];
+			
+			for(int c=0; c<svNames.length; c++)
+				svNames[c] = table.getSVName(c);
 			
-			final File outputTable = new File(outputTableName + "_" + support);
-			final FileOutputStream os2 = new FileOutputStream(outputTable);
-			final PrintStream ps2 = new PrintStream(os2);
+			for(int c=0; c<mvNames.length; c++)
+				mvNames[c] = table.getMVName(c);
 			
-			ps2.print(toReturn.toString());
-			ps2.close();
-			os2.close();
+			toReturn = new Table(svNames, toArrays(svValues), mvNames, toArrays(mvOffsets), toArrays(mvValues), outputTableName + "_" + support, args);
+			
+			// the rows are streamed to the file, the table is never built as a string
+			TableWriter.write(toReturn, outputTableName + "_" + support);
 		}
 		catch (Exception e)
 		{
@@ -177,7 +155,17 @@ public class Solver
 		return toReturn;
 	}
 	
-	public TObjectDoubleHashMap<TIntArrayList> getOutputTable()
+	private static int[][] toArrays(final TIntArrayList[] lists)
+	{
+		final int[][] arrays = new int[lists.length][];
+		
+		for(int i=0; i<lists.length; i++)
+			arrays[i] = lists[i].toArray();
+		
+		return arrays;
+	}
+	
+	public TObjectDoubleHashMap<Itemset> getOutputTable()
 	{
 		return outputTable;
 	}
@@ -185,28 +173,29 @@ public class Solver
 	/**
 	 * maps each value to a CPLEX variable and adds an ILP constraint for each attribute to avoid null values in the synthetic table
 	 */
-	private <T> void mappingValues(final List<Column<T>> columns, final boolean isSingleValue)
+	private void mappingValues(final boolean isSingleValue)
 	{
 		try
 		{
-			for(final Column<T> column : columns)
+			final int numberOfAttributes = isSingleValue ? table.getNumberOfSVAttributes() : table.getNumberOfMVAttribute();
+			final TableStatistics statistics = table.getStatistics();
+			
+			for(int c=0; c<numberOfAttributes; c++)
 			{
-				final String columnName = column.getName();
+				final String columnName = isSingleValue ? table.getSVName(c) : table.getMVName(c);
 				
-				TIntHashSet attributeDomain;
+				// the values of the attribute, sorted, so that the variables are always created in the same order
+				int[] attributeDomain;
 				
 				if(isSingleValue)
-					attributeDomain = table.domainSingleValueAttribute(columnName);
+					attributeDomain = statistics.getSVValues(c);
 				else
-					attributeDomain = table.domainMultiValueAttribute(columnName);
+					attributeDomain = statistics.getMVValues(c);
 				
 				final IloLinearIntExpr constraint_on_attribute = cplexILP.linearIntExpr();
 				
-				final TIntIterator iterator = attributeDomain.iterator();
-				
-				while(iterator.hasNext())
+				for(final int i : attributeDomain)
 				{
-					final int i = iterator.next();
 					final IloIntVar var = cplexILP.intVar(0, 1);
 					var.setName(columnName + i);
 					variables.get(columnName).put(i, var);
@@ -373,11 +362,11 @@ public class Solver
 			IloLinearNumExpr objective = cplexILP.linearNumExpr();
 			IloLinearIntExpr sumConstraints = cplexILP.linearIntExpr();
 			
-			mappingValues(table.get_SV_attributes(), true);
-			mappingValues(table.get_MV_attributes(), false);
+			mappingValues(true);
+			mappingValues(false);
 			
-			mappingConstraints(frequencyConstraints, objetive, sumConstraints);
-			mappingConstraints(infrequencyConstraints, objetive, sumConstraints);
+			mappingConstraints(frequencyConstraints, objective, sumConstraints);
+			mappingConstraints(infrequencyConstraints, objective, sumConstraints);
 			
 			objectiveILP = cplexILP.addMaximize(objective);
 			rc = cplexILP.addGe(reducedCosts, 0.01);
@@ -492,7 +481,7 @@ public class Solver
 					numExpr10.addTerm(1, x);
 					numExpr11.addTerm(1, x);
 					
-					transactions.put(x, lastTransactions.get(t));
+					transactions.put(x, lastTransactions[t]);
 				}
 			}
 			
@@ -575,7 +564,7 @@ public class Solver
 						x.setName("x" + xIndex);
 						xIndex++;
 
-						transactions.put(x, lastTransactions.get(t));
+						transactions.put(x, lastTransactions[t]);
 					}
 				}
 				
@@ -597,10 +586,12 @@ public class Solver
 				
 				if(duplicates > 0.0)
 				{
-					System.out.println(transactions.get(x).toString() + "\t\t\t--\t" + duplicates);
+					final Itemset transaction = transactionDictionary.getItemset(transactions.get(x), 0);
+					
+					System.out.println(transaction.toString() + "\t\t\t--\t" + duplicates);
 					rows += duplicates;
 					
-					outputTable.put(transactions.get(x), duplicates);
+					outputTable.put(transaction, duplicates);
 				}
 			}
 			
@@ -694,11 +685,10 @@ public class Solver
 
 	private void getTransactions()
 	{
-		lastTransactions = new TIntObjectHashMap<TIntArrayList>();
-		
 		try
 		{
 			final int transactions = cplexILP.getSolnPoolNsolns();
+			lastTransactions = new int[transactions];
 
 			for(int t=0; t<transactions; t++)
 			{
@@ -718,7 +708,8 @@ public class Solver
 					}
 				}
 				
-				lastTransactions.put(t, transaction);
+				transaction.sort();
+				lastTransactions[t] = transactionDictionary.add(transaction.toArray());
 			}
 		}
 		catch (UnknownObjectException e)
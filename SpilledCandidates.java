@@ -0,0 +1,131 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The candidates of a level of {@link Apriori} that do not fit its memory budget, spilled to a temporary file
+ * and read back in chunks, in the same (lexicographic) order they were written.
+ *
+ * Each candidate is stored as the number of leading items it shares with the previous candidate, followed by its other items,
+ * all of them as variable length integers (7 bits per byte): consecutive candidates are generated from the same prefix
+ * and usually differ in the last item only, so a candidate takes a few bytes instead of 4 bytes per item.
+ */
+public class SpilledCandidates
+{
+	private final File file;
+	/** number of items of each candidate */
+	private final int length;
+	private int numCandidates = 0;
+	private int numRead = 0;
+	private DataOutputStream out;
+	private DataInputStream in;
+	/** the last candidate written or read */
+	private int[] previous;
+
+	public SpilledCandidates(final int length) throws IOException
+	{
+		this.length = length;
+		file = File.createTempFile("candidates", ".bin");
+		file.deleteOnExit();
+		out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)));
+		previous = new int[length];
+	}
+
+	/** appends the candidate (written candidates can be read only once all of them have been written) */
+	public void write(final int[] candidate) throws IOException
+	{
+		int shared = 0;
+
+		if(numCandidates > 0)
+			while(shared < length && candidate[shared] == previous[shared])
+				shared++;
+
+		writeInt(shared);
+
+		for(int i=shared; i<length; i++)
+			writeInt(candidate[i]);
+
+		System.arraycopy(candidate, 0, previous, 0, length);
+		numCandidates++;
+	}
+
+	/** reads the next candidates, at most max of them (an empty list once all of them have been read) */
+	public List<int[]> read(final int max) throws IOException
+	{
+		if(in == null)
+		{
+			out.close();
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+		}
+
+		final List<int[]> candidates = new ArrayList<int[]>(Math.min(max, numCandidates-numRead));
+
+		while(candidates.size() < max && numRead < numCandidates)
+		{
+			final int[] candidate = Arrays.copyOf(previous, length);
+
+			for(int i=readInt(); i<length; i++)
+				candidate[i] = readInt();
+
+			candidates.add(candidate);
+			previous = candidate;
+			numRead++;
+		}
+
+		return candidates;
+	}
+
+	/** number of candidates written */
+	public int size()
+	{
+		return numCandidates;
+	}
+
+	public int getLength()
+	{
+		return length;
+	}
+
+	/** closes and deletes the file */
+	public void delete() throws IOException
+	{
+		if(in != null)
+			in.close();
+		else
+			out.close();
+
+		file.delete();
+	}
+
+	private void writeInt(int value) throws IOException
+	{
+		while((value & ~0x7F) != 0)
+		{
+			out.writeByte((value & 0x7F) | 0x80);
+			value >>>= 7;
+		}
+
+		out.writeByte(value);
+	}
+
+	private int readInt() throws IOException
+	{
+		int value = 0;
+
+		for(int shift=0; ; shift+=7)
+		{
+			final int b = in.readByte();
+			value |= (b & 0x7F) << shift;
+
+			if((b & 0x80) == 0)
+				return value;
+		}
+	}
+}
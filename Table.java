@@ -6,160 +6,531 @@
  * and imposing this condition on any subsequent users.
  */
 
-import gnu.trove.iterator.TIntIterator;
 import gnu.trove.set.hash.TIntHashSet;
 
+import java.io.IOException;
 import java.util.*;
 
-public class Table 
+/**
+ * A table stored by columns of primitive values:
+ *  - a single value attribute is an int[] with the value of each row;
+ *  - a multi value attribute is in CSR (compressed sparse row) format, i.e. an int[] with the values of all the rows one after the other,
+ *    each row sorted and without duplicates, and an int[] of offsets: the values of the row r are values[offsets[r]], ..., values[offsets[r+1]-1].
+ * A cell takes 4 bytes per value, instead of a boxed Integer or a hash set per row.
+ * The values are read through the primitive accessors (e.g. {@link #getSVValue(int, int)}, {@link #getMVValue(int, int, int)});
+ * {@link #get_SV_attributes()} and {@link #get_MV_attributes()} return boxed copies of the columns.
+ *
+ * The domain of each attribute and the attribute of each value are computed once, in a single pass over the columns,
+ * so that the attribute of an item is found in constant time (see {@link #getSVAttributeOf(int)} and {@link #getMVAttributeOf(int)}).
+ *
+ * The other statistics of the columns (e.g. the support of each item) are collected once, when first needed (see {@link #getStatistics()}).
+ *
+ * The columns are on the heap; a {@link MappedTable} reads them from a memory-mapped file instead, through the same accessors.
+ */
+public class Table
 {
-	private final List<Column<Integer>> singleValueAttributes;
-	private final List<Column<TIntHashSet>> multiValueAttributes;
+	/** the greatest value of an attribute: the values index arrays (e.g. of the attribute or of the support of each item), so they are at least 0 and at most MAX_VALUE */
+	public static final int MAX_VALUE = (1 << 26) - 1;
+
+	private final String[] svNames;
+	/** svValues[c][r] is the value of the c-th single value attribute in the row r */
+	private final int[][] svValues;
+	private final String[] mvNames;
+	/** the values of the c-th multi value attribute in the row r are mvValues[c][mvOffsets[c][r]], ..., mvValues[c][mvOffsets[c][r+1]-1] */
+	private final int[][] mvOffsets;
+	private final int[][] mvValues;
 	private final int size;//number of rows
 	private final String name;
 	private final int numberOfSVAttributes;
 	private final int numberOfMVAttributes;
 	private final String[] columns;
-	
+	private final TIntHashSet[] svDomains;
+	private final TIntHashSet[] mvDomains;
+	/** svAttributeOf[v] is the index of the first single value attribute having the value v, -1 if none (the same for mvAttributeOf) */
+	private int[] svAttributeOf = new int[0];
+	private int[] mvAttributeOf = new int[0];
+	private TableStatistics statistics;
+
 	public Table(final List<Column<Integer>> singleValueAttr, final List<Column<TIntHashSet>> multiValueAttr, final String tableName, final String[] attributes)
 	{
-		singleValueAttributes = singleValueAttr;
-		multiValueAttributes = multiValueAttr;		
-		size = singleValueAttr.get(0).getValues().size();
+		this(svNames(singleValueAttr), svValues(singleValueAttr), mvNames(multiValueAttr), mvOffsets(multiValueAttr), mvValues(multiValueAttr), tableName, attributes);
+	}
+
+	/**
+	 * builds a table from its columns (the arrays are not copied)
+	 *
+	 * @param svValues svValues[c] holds the value of each row for the single value attribute svNames[c]
+	 * @param mvOffsets mvOffsets[c] holds the offsets (number of rows + 1) of the multi value attribute mvNames[c] in mvValues[c]
+	 * @param mvValues mvValues[c] holds the values of each row for the multi value attribute mvNames[c], each row sorted and without duplicates
+	 */
+	public Table(final String[] svNames, final int[][] svValues, final String[] mvNames, final int[][] mvOffsets, final int[][] mvValues, final String tableName, final String[] attributes)
+	{
+		this(svNames, svValues, mvNames, mvOffsets, mvValues, null, null, tableName, attributes);
+	}
+
+	/**
+	 * builds a table whose columns are stored by a subclass, overriding the primitive accessors
+	 *
+	 * @param size the number of rows
+	 * @param svDomainValues svDomainValues[c] holds the values of the single value attribute svNames[c], without duplicates (the same for mvDomainValues)
+	 */
+	protected Table(final String[] svNames, final String[] mvNames, final int size, final int[][] svDomainValues, final int[][] mvDomainValues, final String tableName, final String[] attributes)
+	{
+		this(svNames, null, mvNames, null, null, size, svDomainValues, mvDomainValues, tableName, attributes);
+	}
+
+	/**
+	 * builds a table from its columns and the domains of its attributes (e.g. stored in a {@link TableSnapshot}),
+	 * so that the columns are not scanned again (null domains are computed from the columns)
+	 */
+	public Table(final String[] svNames, final int[][] svValues, final String[] mvNames, final int[][] mvOffsets, final int[][] mvValues, final int[][] svDomainValues, final int[][] mvDomainValues, final String tableName, final String[] attributes)
+	{
+		this(svNames, svValues, mvNames, mvOffsets, mvValues, svValues.length > 0 ? svValues[0].length : mvOffsets[0].length-1, svDomainValues, mvDomainValues, tableName, attributes);
+	}
+
+	private Table(final String[] svNames, final int[][] svValues, final String[] mvNames, final int[][] mvOffsets, final int[][] mvValues, final int size, final int[][] svDomainValues, final int[][] mvDomainValues, final String tableName, final String[] attributes)
+	{
+		this.svNames = svNames;
+		this.svValues = svValues;
+		this.mvNames = mvNames;
+		this.mvOffsets = mvOffsets;
+		this.mvValues = mvValues;
+		this.size = size;
 		this.name = "transactional_" + tableName;
-		numberOfSVAttributes = singleValueAttr.size();
-		numberOfMVAttributes = multiValueAttr.size();
-		
+		numberOfSVAttributes = svNames.length;
+		numberOfMVAttributes = mvNames.length;
+
 		columns = new String[attributes.length-1];
-		
+
 		for(int i=1; i<attributes.length; i++)
 			columns[i-1] = attributes[i];
+
+		svDomains = new TIntHashSet[numberOfSVAttributes];
+		mvDomains = new TIntHashSet[numberOfMVAttributes];
+
+		for(int c=0; c<numberOfSVAttributes; c++)
+		{
+			svDomains[c] = new TIntHashSet();
+
+			for(final int value : svDomainValues != null ? svDomainValues[c] : svValues[c])
+				if(svDomains[c].add(value))
+					svAttributeOf = index(svAttributeOf, value, c);
+		}
+
+		for(int c=0; c<numberOfMVAttributes; c++)
+		{
+			mvDomains[c] = new TIntHashSet();
+
+			for(final int value : mvDomainValues != null ? mvDomainValues[c] : mvValues[c])
+				if(mvDomains[c].add(value))
+					mvAttributeOf = index(mvAttributeOf, value, c);
+		}
+	}
+
+	/** records that the value belongs to the attribute c, unless it belongs to an attribute with a lower index */
+	private static int[] index(int[] attributeOf, final int value, final int c)
+	{
+		checkValue(value);
+
+		if(value >= attributeOf.length)
+		{
+			final int length = attributeOf.length;
+			attributeOf = Arrays.copyOf(attributeOf, Math.max(2*length, value+1));
+			Arrays.fill(attributeOf, length, attributeOf.length, -1);
+		}
+
+		if(attributeOf[value] < 0)
+			attributeOf[value] = c;
+
+		return attributeOf;
+	}
+
+	/** throws an IllegalArgumentException if the value is negative or greater than MAX_VALUE */
+	static void checkValue(final int value)
+	{
+		if(value < 0 || value > MAX_VALUE)
+			throw new IllegalArgumentException("the value " + value + " is not in the range [0, " + MAX_VALUE + "]: such values have to be encoded (see #ENCODE_VALUES)");
+	}
+
+	private static String[] svNames(final List<Column<Integer>> singleValueAttr)
+	{
+		final String[] names = new String[singleValueAttr.size()];
+
+		for(int c=0; c<names.length; c++)
+			names[c] = singleValueAttr.get(c).getName();
+
+		return names;
+	}
+
+	private static int[][] svValues(final List<Column<Integer>> singleValueAttr)
+	{
+		final int[][] values = new int[singleValueAttr.size()][];
+
+		for(int c=0; c<values.length; c++)
+		{
+			final List<Integer> column = singleValueAttr.get(c).getValues();
+			values[c] = new int[column.size()];
+
+			for(int r=0; r<values[c].length; r++)
+				values[c][r] = column.get(r);
+		}
+
+		return values;
+	}
+
+	private static String[] mvNames(final List<Column<TIntHashSet>> multiValueAttr)
+	{
+		final String[] names = new String[multiValueAttr.size()];
+
+		for(int c=0; c<names.length; c++)
+			names[c] = multiValueAttr.get(c).getName();
+
+		return names;
+	}
+
+	private static int[][] mvOffsets(final List<Column<TIntHashSet>> multiValueAttr)
+	{
+		final int[][] offsets = new int[multiValueAttr.size()][];
+
+		for(int c=0; c<offsets.length; c++)
+		{
+			final List<TIntHashSet> column = multiValueAttr.get(c).getValues();
+			offsets[c] = new int[column.size()+1];
+
+			for(int r=0; r<column.size(); r++)
+				offsets[c][r+1] = offsets[c][r] + column.get(r).size();
+		}
+
+		return offsets;
+	}
+
+	private static int[][] mvValues(final List<Column<TIntHashSet>> multiValueAttr)
+	{
+		final int[][] values = new int[multiValueAttr.size()][];
+
+		for(int c=0; c<values.length; c++)
+		{
+			final List<TIntHashSet> column = multiValueAttr.get(c).getValues();
+			int numValues = 0;
+
+			for(final TIntHashSet set : column)
+				numValues += set.size();
+
+			values[c] = new int[numValues];
+			int n = 0;
+
+			for(final TIntHashSet set : column)
+			{
+				final int[] row = set.toArray();
+				Arrays.sort(row);
+				System.arraycopy(row, 0, values[c], n, row.length);
+				n += row.length;
+			}
+		}
+
+		return values;
 	}
-	
+
+	/** returns a boxed copy of the single value attributes (the primitive accessors do not allocate) */
 	public List<Column<Integer>> get_SV_attributes()
 	{
+		final List<Column<Integer>> singleValueAttributes = new ArrayList<Column<Integer>>();
+
+		for(int c=0; c<numberOfSVAttributes; c++)
+			singleValueAttributes.add(svColumn(c));
+
 		return singleValueAttributes;
 	}
-	
+
+	/** returns a boxed copy of the multi value attributes (the primitive accessors do not allocate) */
 	public List<Column<TIntHashSet>> get_MV_attributes()
 	{
+		final List<Column<TIntHashSet>> multiValueAttributes = new ArrayList<Column<TIntHashSet>>();
+
+		for(int c=0; c<numberOfMVAttributes; c++)
+			multiValueAttributes.add(mvColumn(c));
+
 		return multiValueAttributes;
 	}
-	
+
+	private Column<Integer> svColumn(final int c)
+	{
+		final List<Integer> values = new ArrayList<Integer>(size);
+
+		for(int r=0; r<size; r++)
+			values.add(getSVValue(c, r));
+
+		return new Column<Integer>(values, svNames[c]);
+	}
+
+	private Column<TIntHashSet> mvColumn(final int c)
+	{
+		final List<TIntHashSet> values = new ArrayList<TIntHashSet>(size);
+
+		for(int r=0; r<size; r++)
+		{
+			final TIntHashSet set = new TIntHashSet();
+
+			for(int k=0; k<getMVSize(c, r); k++)
+				set.add(getMVValue(c, r, k));
+
+			values.add(set);
+		}
+
+		return new Column<TIntHashSet>(values, mvNames[c]);
+	}
+
 	public int getNumberOfSVAttributes()
 	{
 		return numberOfSVAttributes;
 	}
-	
+
 	public int getNumberOfMVAttribute()
 	{
 		return numberOfMVAttributes;
 	}
-	
+
 	public String getName()
 	{
 		return name;
 	}
-	
+
+	/** name of the c-th single value attribute */
+	public String getSVName(final int c)
+	{
+		return svNames[c];
+	}
+
+	/** name of the c-th multi value attribute */
+	public String getMVName(final int c)
+	{
+		return mvNames[c];
+	}
+
+	/** index of the single value attribute, -1 if there is no such attribute */
+	public int getSVIndex(final String attributeName)
+	{
+		for(int c=0; c<numberOfSVAttributes; c++)
+			if(svNames[c].equals(attributeName))
+				return c;
+
+		return -1;
+	}
+
+	/** index of the multi value attribute, -1 if there is no such attribute */
+	public int getMVIndex(final String attributeName)
+	{
+		for(int c=0; c<numberOfMVAttributes; c++)
+			if(mvNames[c].equals(attributeName))
+				return c;
+
+		return -1;
+	}
+
+	/** value of the c-th single value attribute in the row */
+	public int getSVValue(final int c, final int row)
+	{
+		return svValues[c][row];
+	}
+
+	/** the values of the c-th single value attribute, one per row (not to be modified) */
+	public int[] getSVColumn(final int c)
+	{
+		return svValues[c];
+	}
+
+	/** number of values of the c-th multi value attribute in the row */
+	public int getMVSize(final int c, final int row)
+	{
+		return mvOffsets[c][row+1] - mvOffsets[c][row];
+	}
+
+	/** k-th smallest value of the c-th multi value attribute in the row */
+	public int getMVValue(final int c, final int row, final int k)
+	{
+		return mvValues[c][mvOffsets[c][row] + k];
+	}
+
+	/** the offsets of the rows of the c-th multi value attribute in {@link #getMVValues(int)}, number of rows + 1 (not to be modified) */
+	public int[] getMVOffsets(final int c)
+	{
+		return mvOffsets[c];
+	}
+
+	/** the values of the c-th multi value attribute, all the rows one after the other (not to be modified) */
+	public int[] getMVValues(final int c)
+	{
+		return mvValues[c];
+	}
+
 	public Column<Integer> getSingleValueAttribute(final String attributeName)
 	{
-		for(final Column<Integer> column : singleValueAttributes)
-			if(column.getName().equals(attributeName))
-				return column;
-		
-		return null;
+		final int c = getSVIndex(attributeName);
+
+		return c < 0 ? null : svColumn(c);
 	}
-	
+
 	public Column<TIntHashSet> getMultiValueAttribute(final String attributeName)
 	{
-		for(final Column<TIntHashSet> column : multiValueAttributes)
-			if(column.getName().equals(attributeName))
-				return column;
-		
-		return null;
+		final int c = getMVIndex(attributeName);
+
+		return c < 0 ? null : mvColumn(c);
 	}
-	
+
 	public int getSize()
 	{
 		return size;
 	}
-	
+
+	/** the values of the single value attribute (not to be modified, empty if there is no such attribute) */
 	public TIntHashSet domainSingleValueAttribute(final String attributeName)
 	{
-		final TIntHashSet domain = new TIntHashSet();
-		
-		for(final Column<Integer> column : singleValueAttributes)
-			if(column.getName().equals(attributeName))
-			{
-				for(final int i : column.getValues())
-					domain.add(i);
-				
-				break;
-			}
-		
-		return domain;
+		final int c = getSVIndex(attributeName);
+
+		return c >= 0 ? svDomains[c] : new TIntHashSet();
 	}
-	
+
+	/** the values of the multi value attribute (not to be modified, empty if there is no such attribute) */
 	public TIntHashSet domainMultiValueAttribute(final String attributeName)
 	{
-		final TIntHashSet domain = new TIntHashSet();
-		
-		for(final Column<TIntHashSet> column : multiValueAttributes)
-			if(column.getName().equals(attributeName))
+		final int c = getMVIndex(attributeName);
+
+		return c >= 0 ? mvDomains[c] : new TIntHashSet();
+	}
+
+	/** the values of the c-th single value attribute (not to be modified) */
+	public TIntHashSet getSVDomain(final int c)
+	{
+		return svDomains[c];
+	}
+
+	/** the values of the c-th multi value attribute (not to be modified) */
+	public TIntHashSet getMVDomain(final int c)
+	{
+		return mvDomains[c];
+	}
+
+	/** index of the first single value attribute having the value, -1 if none */
+	public int getSVAttributeOf(final int value)
+	{
+		return value >= 0 && value < svAttributeOf.length ? svAttributeOf[value] : -1;
+	}
+
+	/** index of the first multi value attribute having the value, -1 if none */
+	public int getMVAttributeOf(final int value)
+	{
+		return value >= 0 && value < mvAttributeOf.length ? mvAttributeOf[value] : -1;
+	}
+
+	/** the statistics of the columns, collected in a single pass over them at the first call */
+	public synchronized TableStatistics getStatistics()
+	{
+		if(statistics == null)
+			statistics = new TableStatistics(this);
+
+		return statistics;
+	}
+
+	/** writes the rows of the table, as by {@link #toString()}, without building them as a string */
+	public void write(final TableWriter out) throws IOException
+	{
+		final boolean[] singleValue = new boolean[columns.length/2];
+		final int[] attributeIndex = attributeIndexes(singleValue);
+
+		for(int index=0; index<size; index++)
+		{
+			for(int j=0; j<attributeIndex.length; j++)
 			{
-				for(final TIntHashSet s : column.getValues())
+				final int c = attributeIndex[j];
+
+				if(singleValue[j])
+				{
+					if(c >= 0)
+					{
+						out.write(getSVValue(c, index));
+						out.write("; ");
+					}
+				}
+				else
 				{
-					final TIntIterator iterator = s.iterator();
-					
-					while(iterator.hasNext())
-						domain.add(iterator.next());
+					if(c >= 0)
+					{
+						for(int k=0; k<getMVSize(c, index); k++)
+						{
+							if(k > 0)
+								out.write(' ');
+
+							out.write(getMVValue(c, index, k));
+						}
+
+						out.write("; ");
+					}
 				}
-				
-				break;
 			}
-		
-		return domain;
+
+			out.write('\n');
+		}
+	}
+
+	/**
+	 * returns the index of each column among the single value or the multi value attributes (-1 if the table has no such attribute),
+	 * and sets singleValue[j] to true if the j-th column is single value; the columns are looked up once instead of for each cell
+	 */
+	private int[] attributeIndexes(final boolean[] singleValue)
+	{
+		final int[] attributeIndex = new int[singleValue.length];
+
+		for(int j=0; j<attributeIndex.length; j++)
+		{
+			singleValue[j] = columns[2*j+1].equals("sv");
+			attributeIndex[j] = singleValue[j] ? getSVIndex(columns[2*j]) : getMVIndex(columns[2*j]);
+		}
+
+		return attributeIndex;
 	}
 
 	@Override
 	public String toString()
 	{
-		String toReturn = "";
+		final StringBuilder toReturn = new StringBuilder();
+		final boolean[] singleValue = new boolean[columns.length/2];
+		final int[] attributeIndex = attributeIndexes(singleValue);
 		int index = 0;
-		
+
 		while(index < size)
 		{
-			for(int i=0; i<columns.length-1; i++)
+			for(int j=0; j<attributeIndex.length; j++)
 			{
-				final String columnName = columns[i];
-				i++;
-				final String type = columns[i];
-				
-				if(type.equals("sv"))
+				final int c = attributeIndex[j];
+
+				if(singleValue[j])
 				{
-					for(final Column<Integer> svColumn : singleValueAttributes)
-						if(svColumn.getName().equals(columnName))
-						{
-							toReturn += svColumn.getValue(index) + "; ";
-							break;
-						}
+					if(c >= 0)
+						toReturn.append(getSVValue(c, index)).append("; ");
 				}
 				else
-					for(final Column<TIntHashSet> mvColumn : multiValueAttributes)
-						if(mvColumn.getName().equals(columnName))
+				{
+					if(c >= 0)
+					{
+						for(int k=0; k<getMVSize(c, index); k++)
 						{
-							toReturn += mvColumn.getValue(index).toString().replace("{","").replace("}", "").replace(",", " ") + "; ";
-							break;
+							if(k > 0)
+								toReturn.append(' ');
+
+							toReturn.append(getMVValue(c, index, k));
 						}
-					
+
+						toReturn.append("; ");
+					}
+				}
 			}
-			
+
 			index++;
-			toReturn += "\n";
+			toReturn.append("\n");
 		}
-		
-		return toReturn;
+
+		return toReturn.toString();
 	}
-	
-	
+
+
 }
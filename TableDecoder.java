@@ -0,0 +1,216 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+
+/**
+ * Streaming decoder of the codes of a table encoded by a {@link TableEncoder}, through its dictionary file.
+ *
+ * The dictionary file is memory-mapped by regions, mapped only when a value they hold is decoded,
+ * so decoding a code reads its position and its value from the file without loading the dictionary in memory.
+ * The rows of the output table are decoded and written one at a time.
+ */
+public class TableDecoder
+{
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final RandomAccessFile file;
+	private final FileChannel channel;
+	private final int numCodes;
+	/** the position of the position of the first value */
+	private final long positions;
+	/** regions[r] maps the bytes from r*REGION_BYTES, null until it is used */
+	private final MappedByteBuffer[] regions;
+	private byte[] bytes = new byte[256];
+
+	public TableDecoder(final String dictionaryName) throws IOException
+	{
+		file = new RandomAccessFile(dictionaryName, "r");
+		channel = file.getChannel();
+
+		// the trailer starts with MAGIC, VERSION, the number of codes and the position of the positions (big endian, as written by the encoder)
+		final ByteBuffer trailer = ByteBuffer.allocate(4 + 4 + 4 + 8);
+
+		try
+		{
+			final long trailerPosition = read(ByteBuffer.allocate(8), channel.size()-8).getLong(0);
+
+			if(trailerPosition < 0 || trailerPosition + trailer.capacity() > channel.size()-8)
+				throw new IOException("the dictionary " + dictionaryName + " is truncated");
+
+			read(trailer, trailerPosition);
+
+			if(trailer.getInt(0) != TableEncoder.MAGIC || trailer.getInt(4) != TableEncoder.VERSION)
+				throw new IOException("unknown version of the dictionary " + dictionaryName);
+		}
+		catch(final IOException e)
+		{
+			file.close();
+			throw e;
+		}
+
+		numCodes = trailer.getInt(8);
+		positions = trailer.getLong(12);
+
+		regions = new MappedByteBuffer[(int) ((channel.size() + TableEncoder.REGION_BYTES - 1) / TableEncoder.REGION_BYTES)];
+	}
+
+
+	/** the number of codes of the dictionary, from 0 */
+	public int getNumCodes()
+	{
+		return numCodes;
+	}
+
+
+	/** fills the buffer with the bytes of the file from position, and returns it */
+	private ByteBuffer read(final ByteBuffer buffer, long position) throws IOException
+	{
+		if(position < 0)
+			throw new EOFException("the dictionary is truncated");
+
+		while(buffer.hasRemaining())
+		{
+			final int read = channel.read(buffer, position);
+
+			if(read < 0)
+				throw new EOFException("the dictionary is truncated");
+
+			position += read;
+		}
+
+		return buffer;
+	}
+
+
+	/** returns the value of the code */
+	public String decode(final int code) throws IOException
+	{
+		if(code < 0 || code >= numCodes)
+			throw new IOException("unknown code " + code);
+
+		// the positions are at a multiple of 8, so a position never crosses two regions
+		final long positionOfPosition = positions + 8L*code;
+		final long position = region(positionOfPosition).getLong((int) (positionOfPosition % TableEncoder.REGION_BYTES));
+
+		final MappedByteBuffer region = region(position);
+		final int start = (int) (position % TableEncoder.REGION_BYTES);
+		int length = 0;
+
+		for(byte b; (b = region.get(start + length)) != '\n'; length++)
+		{
+			if(length == bytes.length)
+				bytes = java.util.Arrays.copyOf(bytes, 2*length);
+
+			bytes[length] = b;
+		}
+
+		return new String(bytes, 0, length, UTF_8);
+	}
+
+
+	private MappedByteBuffer region(final long position) throws IOException
+	{
+		final int r = (int) (position / TableEncoder.REGION_BYTES);
+
+		if(regions[r] == null)
+		{
+			final long start = (long) r * TableEncoder.REGION_BYTES;
+			regions[r] = channel.map(FileChannel.MapMode.READ_ONLY, start, Math.min(TableEncoder.REGION_BYTES, channel.size()-start));
+		}
+
+		return regions[r];
+	}
+
+
+	/**
+	 * writes the rows of the output table (each transaction repeated as many times as its number of duplicates, rounded),
+	 * with the values decoded, in the format of the input table file
+	 *
+	 * @param table the encoded input table, giving the attribute of each code
+	 * @param attributes the names of the attributes of the table, each one followed by 'sv' (single value) or 'mv' (multi value)
+	 */
+	public void decode(final TObjectDoubleHashMap<Itemset> outputTable, final Table table, final String[] attributes, final String outputTableName) throws IOException
+	{
+		final int numColumns = attributes.length/2;
+		// the column of each single value and multi value attribute
+		final int[] svColumn = new int[table.getNumberOfSVAttributes()];
+		final int[] mvColumn = new int[table.getNumberOfMVAttribute()];
+
+		for(int c=0; c<numColumns; c++)
+			if(attributes[2*c+1].equals("sv"))
+				svColumn[table.getSVIndex(attributes[2*c])] = c;
+			else
+				mvColumn[table.getMVIndex(attributes[2*c])] = c;
+
+		final StringBuilder[] cells = new StringBuilder[numColumns];
+
+		for(int c=0; c<numColumns; c++)
+			cells[c] = new StringBuilder();
+
+		final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputTableName), UTF_8), 1 << 16);
+
+		try
+		{
+			for(final Itemset transaction : outputTable.keySet())
+			{
+				final long duplicates = Math.round(outputTable.get(transaction));
+
+				if(duplicates <= 0)
+					continue;
+
+				for(final StringBuilder cell : cells)
+					cell.setLength(0);
+
+				final Itemset.Cursor cursor = transaction.cursor();
+
+				while(cursor.hasNext())
+				{
+					final int code = cursor.next();
+					final int sv = table.getSVAttributeOf(code);
+
+					if(sv >= 0)
+						cells[svColumn[sv]].append(decode(code));
+					else
+					{
+						final int mv = table.getMVAttributeOf(code);
+
+						if(mv >= 0)
+							cells[mvColumn[mv]].append(' ').append(decode(code));
+					}
+				}
+
+				final StringBuilder row = new StringBuilder();
+
+				for(int c=0; c<numColumns; c++)
+					row.append(cells[c]).append(attributes[2*c+1].equals("sv") ? ";" : " ;");
+
+				row.append('\n');
+
+				for(long i=0; i<duplicates; i++)
+					out.write(row.toString());
+			}
+		}
+		finally
+		{
+			out.close();
+		}
+	}
+
+
+	public void close() throws IOException
+	{
+		file.close();
+	}
+}
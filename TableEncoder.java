@@ -0,0 +1,659 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import gnu.trove.map.hash.TObjectIntHashMap;
+
+import java.io.*;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dictionary encoding of an input table file with values of any kind (e.g. strings): each distinct value of each attribute is replaced
+ * by an integer code, so that the encoded table can be loaded as usual, and the output table decoded back by a {@link TableDecoder}.
+ * The codes of an attribute are consecutive, and follow the order of its values; the codes of different attributes are different.
+ *
+ * The file is split at line boundaries into chunks, encoded in parallel by a fixed number of workers.
+ * Each worker has its own dictionaries, mapping the values it reads to local codes: the rows of a chunk are written with the local codes
+ * to a temporary file, and a dictionary holding too many values is spilled to disk as runs sorted by value, and emptied.
+ * The runs of all the workers are then merged attribute by attribute, which assigns the codes and writes the dictionary file,
+ * and finally the temporary files are translated in parallel from local codes to codes, and concatenated into the encoded table.
+ * The local codes are not reused after a spill, so a value read again by a worker gets a new local code: the table from local codes to codes
+ * (an integer per local code, on the heap during the translation) grows with the number of distinct values of each chunk, i.e. at most
+ * with the number of values of the file when each chunk holds different values.
+ *
+ * The dictionary file holds the values one after the other (UTF-8, each one followed by a new line), in the order of their codes,
+ * then the position of each value, then a trailer (see {@link #MAGIC}); a value never crosses a multiple of {@link #REGION_BYTES},
+ * so that the decoder maps the file by regions of that size.
+ */
+public class TableEncoder
+{
+	/** the trailer holds MAGIC, VERSION, the number of codes, the position of the positions of the values, and for each attribute its name, its kind and its codes */
+	static final int MAGIC = 0x49464D44;
+	static final int VERSION = 1;
+	/** the dictionary file is mapped by regions of this number of bytes */
+	static final int REGION_BYTES = 1 << 30;
+
+	private static final long MAX_CHUNK_BYTES = 1L << 30;
+	private static final long MIN_CHUNK_BYTES = 1L << 20;
+	/** a worker spills its dictionaries to disk once they hold this number of values */
+	private static final int MAX_DICTIONARY_SIZE = 1 << 20;
+	private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+	private final String[] attributes;
+	/** singleValue[c] is true if the c-th column of the file is single value */
+	private final boolean[] singleValue;
+
+	private TableEncoder(final String[] attributes)
+	{
+		this.attributes = attributes;
+		singleValue = new boolean[attributes.length/2];
+
+		for(int c=0; c<singleValue.length; c++)
+			singleValue[c] = attributes[2*c+1].equals("sv");
+	}
+
+	/**
+	 * encodes the input table file
+	 *
+	 * @param attributes the names of the attributes of the table, each one followed by 'sv' (single value) or 'mv' (multi value)
+	 * @param numThreads the number of workers (0 for as many as the available processors)
+	 * @param encodedTableName the file the encoded table is written to
+	 * @param dictionaryName the file the dictionary is written to
+	 */
+	public static void encode(final String inputTableName, final String[] attributes, int numThreads, final String encodedTableName, final String dictionaryName) throws Exception
+	{
+		if(numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+
+		// the chunks of the file are mapped, so the file must not be compressed
+		if(TableLoader.isCompressed(inputTableName))
+			throw new IOException("cannot encode the compressed file " + inputTableName + ", it must be decompressed first");
+
+		final TableEncoder encoder = new TableEncoder(attributes);
+		final ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+		final List<File> temporaryFiles = new ArrayList<File>();
+
+		try
+		{
+			final RandomAccessFile input = new RandomAccessFile(inputTableName, "r");
+			final long[] bounds;
+			final Worker[] localEncoders = new Worker[numThreads];
+			final Chunk[] chunks;
+
+			try
+			{
+				final FileChannel in = input.getChannel();
+				bounds = TableLoader.split(in, numThreads, MIN_CHUNK_BYTES, MAX_CHUNK_BYTES);
+				chunks = new Chunk[bounds.length-1];
+
+				for(int i=0; i<chunks.length; i++)
+				{
+					chunks[i] = new Chunk(bounds[i], bounds[i+1]);
+					temporaryFiles.add(chunks[i].localCodes);
+					temporaryFiles.add(chunks[i].codes);
+				}
+
+				// phase one: each worker encodes the chunks it takes with its own dictionaries
+				final AtomicInteger nextChunk = new AtomicInteger();
+				final List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+				for(int w=0; w<numThreads; w++)
+				{
+					localEncoders[w] = encoder.new Worker(w, temporaryFiles);
+					final Worker worker = localEncoders[w];
+
+					tasks.add(workers.submit(new Callable<Void>()
+					{
+						@Override
+						public Void call() throws Exception
+						{
+							int i;
+
+							while((i = nextChunk.getAndIncrement()) < chunks.length)
+								worker.encode(in, chunks[i]);
+
+							worker.spill();
+
+							return null;
+						}
+					}));
+				}
+
+				for(final Future<?> task : tasks)
+					task.get();
+			}
+			finally
+			{
+				input.close();
+			}
+
+			// phase two: the runs are merged into the dictionary, which maps the local codes of each worker to the codes
+			final int[][][] codes = encoder.merge(localEncoders, dictionaryName);
+
+			// phase three: the chunks are translated to the codes in parallel, and concatenated
+			final List<Future<?>> tasks = new ArrayList<Future<?>>();
+
+			for(final Chunk chunk : chunks)
+				tasks.add(workers.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call() throws Exception
+					{
+						encoder.translate(chunk, codes[chunk.worker]);
+
+						return null;
+					}
+				}));
+
+			for(final Future<?> task : tasks)
+				task.get();
+
+			final FileOutputStream out = new FileOutputStream(encodedTableName);
+
+			try
+			{
+				for(final Chunk chunk : chunks)
+				{
+					final FileInputStream in = new FileInputStream(chunk.codes);
+
+					try
+					{
+						final FileChannel channel = in.getChannel();
+
+						for(long position=0; position<channel.size(); )
+							position += channel.transferTo(position, channel.size()-position, out.getChannel());
+					}
+					finally
+					{
+						in.close();
+					}
+
+					chunk.codes.delete();
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+		finally
+		{
+			workers.shutdown();
+
+			for(final File file : temporaryFiles)
+				file.delete();
+		}
+	}
+
+
+	/** a chunk of the file, with the temporary files of its rows encoded with local codes and with codes */
+	private static final class Chunk
+	{
+		private final long start;
+		private final long end;
+		private final File localCodes;
+		private final File codes;
+		/** the worker that encoded the chunk (its local codes) */
+		private int worker;
+		private int numRows = 0;
+
+		private Chunk(final long start, final long end) throws IOException
+		{
+			this.start = start;
+			this.end = end;
+			localCodes = File.createTempFile("chunk", ".bin");
+			localCodes.deleteOnExit();
+			codes = File.createTempFile("chunk", ".txt");
+			codes.deleteOnExit();
+		}
+	}
+
+
+	/** encodes chunks with its own dictionaries, one per column, spilled to disk when too large */
+	private final class Worker
+	{
+		private final int id;
+		private final List<File> temporaryFiles;
+		private final TObjectIntHashMap<String>[] dictionaries;
+		/** numLocalCodes[c] is the number of local codes given to the values of the c-th column */
+		private final int[] numLocalCodes;
+		/** runs.get(c) holds the runs of the dictionary of the c-th column */
+		private final List<List<File>> runs = new ArrayList<List<File>>();
+		private int dictionarySize = 0;
+
+		@SuppressWarnings({"unchecked", "rawtypes"})
+		private Worker(final int id, final List<File> temporaryFiles)
+		{
+			this.id = id;
+			this.temporaryFiles = temporaryFiles;
+			dictionaries = new TObjectIntHashMap[singleValue.length];
+			numLocalCodes = new int[singleValue.length];
+
+			for(int c=0; c<singleValue.length; c++)
+			{
+				dictionaries[c] = new TObjectIntHashMap<String>(1024, 0.5f, -1);
+				runs.add(new ArrayList<File>());
+			}
+		}
+
+		/** writes the rows of the chunk as local codes: for each column, the local code of a single value, or the number of values followed by their local codes */
+		private void encode(final FileChannel in, final Chunk chunk) throws IOException
+		{
+			chunk.worker = id;
+
+			final MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, chunk.start, chunk.end-chunk.start);
+			final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(chunk.localCodes), 1 << 16));
+			final int limit = buffer.limit();
+			final List<String> values = new ArrayList<String>();
+			byte[] bytes = new byte[256];
+			int p = 0;
+
+			try
+			{
+				while(p < limit)
+				{
+					int column = 0;
+					boolean endOfLine = false;
+
+					while(!endOfLine)
+					{
+						int q = p;
+						byte b = 0;
+
+						while(q < limit && (b = buffer.get(q)) != ';' && b != '\n')
+							q++;
+
+						endOfLine = q == limit || b == '\n';
+						// the end of the value, without the carriage return of a line ending with "\r\n"
+						final int end = endOfLine && q > p && buffer.get(q-1) == '\r' ? q-1 : q;
+
+						// as with a StringTokenizer, empty values (two consecutive ';') are skipped
+						if(end > p && column < singleValue.length)
+						{
+							if(end-p > bytes.length)
+								bytes = new byte[Math.max(2*bytes.length, end-p)];
+
+							for(int i=p; i<end; i++)
+								bytes[i-p] = buffer.get(i);
+
+							values.clear();
+
+							if(singleValue[column])
+							{
+								final String value = new String(bytes, 0, end-p, UTF_8).trim();
+
+								if(value.isEmpty())
+									throw new IOException("empty value of the single value attribute " + attributes[2*column]);
+
+								out.writeInt(localCode(column, value));
+							}
+							else
+							{
+								for(final String value : new String(bytes, 0, end-p, UTF_8).trim().split("\\s+"))
+									if(!value.isEmpty())
+										values.add(value);
+
+								out.writeInt(values.size());
+
+								for(final String value : values)
+									out.writeInt(localCode(column, value));
+							}
+
+							column++;
+						}
+
+						p = q+1;
+					}
+
+					if(column > 0)
+					{
+						if(column < singleValue.length)
+							throw new IOException("a row has " + column + " values instead of " + singleValue.length);
+
+						chunk.numRows++;
+
+						// the dictionaries are spilled between two rows, as the local codes are not reused
+						if(dictionarySize >= MAX_DICTIONARY_SIZE)
+							spill();
+					}
+				}
+			}
+			finally
+			{
+				out.close();
+			}
+		}
+
+		private int localCode(final int column, final String value) throws IOException
+		{
+			final int code = dictionaries[column].putIfAbsent(value, numLocalCodes[column]);
+
+			if(code >= 0)
+				return code;
+
+			if(numLocalCodes[column] == Integer.MAX_VALUE)
+				throw new IOException("too many values to encode");
+
+			dictionarySize++;
+
+			return numLocalCodes[column]++;
+		}
+
+		/** writes each dictionary to a run, sorted by value (the number of values, then each value with its local code), and empties it */
+		private void spill() throws IOException
+		{
+			for(int c=0; c<singleValue.length; c++)
+			{
+				if(dictionaries[c].size() == 0)
+					continue;
+
+				final String[] values = dictionaries[c].keySet().toArray(new String[0]);
+				Arrays.sort(values);
+
+				final File run = File.createTempFile("dictionary", ".bin");
+				run.deleteOnExit();
+
+				synchronized(temporaryFiles)
+				{
+					temporaryFiles.add(run);
+				}
+
+				final DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), 1 << 16));
+
+				try
+				{
+					out.writeInt(values.length);
+
+					for(final String value : values)
+					{
+						final byte[] bytes = value.getBytes(UTF_8);
+						out.writeInt(bytes.length);
+						out.write(bytes);
+						out.writeInt(dictionaries[c].get(value));
+					}
+				}
+				finally
+				{
+					out.close();
+				}
+
+				runs.get(c).add(run);
+				dictionaries[c].clear();
+			}
+
+			dictionarySize = 0;
+		}
+	}
+
+
+	/** reads a run of a worker, value by value */
+	private static final class Run
+	{
+		private final DataInputStream in;
+		private final int worker;
+		private int remaining;
+		private String value;
+		private int localCode;
+
+		private Run(final File file, final int worker) throws IOException
+		{
+			in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 1 << 16));
+			this.worker = worker;
+			remaining = in.readInt();
+		}
+
+		/** reads the next value, false at the end of the run (which is then closed) */
+		private boolean next() throws IOException
+		{
+			if(remaining == 0)
+			{
+				in.close();
+				return false;
+			}
+
+			final byte[] bytes = new byte[in.readInt()];
+			in.readFully(bytes);
+			value = new String(bytes, UTF_8);
+			localCode = in.readInt();
+			remaining--;
+
+			return true;
+		}
+	}
+
+
+	/**
+	 * merges the runs of the workers column by column, giving consecutive codes to the distinct values in increasing order, and writes the dictionary
+	 *
+	 * @return codes[w][c][l] is the code of the value with local code l in the dictionary of the c-th column of the worker w
+	 */
+	private int[][][] merge(final Worker[] localEncoders, final String dictionaryName) throws IOException
+	{
+		final int[][][] codes = new int[localEncoders.length][singleValue.length][];
+		final DictionaryWriter dictionary = new DictionaryWriter(dictionaryName);
+		int code = 0;
+
+		try
+		{
+			for(int c=0; c<singleValue.length; c++)
+			{
+				final int firstCode = code;
+				final PriorityQueue<Run> runs = new PriorityQueue<Run>(Math.max(1, localEncoders.length), new Comparator<Run>()
+				{
+					@Override
+					public int compare(final Run r1, final Run r2)
+					{
+						return r1.value.compareTo(r2.value);
+					}
+				});
+
+				for(final Worker worker : localEncoders)
+				{
+					codes[worker.id][c] = new int[worker.numLocalCodes[c]];
+
+					for(final File file : worker.runs.get(c))
+					{
+						final Run run = new Run(file, worker.id);
+
+						if(run.next())
+							runs.add(run);
+					}
+				}
+
+				String previous = null;
+
+				while(!runs.isEmpty())
+				{
+					final Run run = runs.poll();
+
+					if(previous == null || !previous.equals(run.value))
+					{
+						if(code == Integer.MAX_VALUE)
+							throw new IOException("too many values to encode");
+
+						dictionary.add(run.value);
+						previous = run.value;
+						code++;
+					}
+
+					codes[run.worker][c][run.localCode] = code-1;
+
+					if(run.next())
+						runs.add(run);
+				}
+
+				dictionary.addAttribute(attributes[2*c], singleValue[c], firstCode, code-firstCode);
+			}
+
+			dictionary.close();
+		}
+		catch(final IOException e)
+		{
+			dictionary.abort();
+			throw e;
+		}
+
+		return codes;
+	}
+
+
+	/** writes the rows of the chunk with the codes, in the format of an input table file */
+	private void translate(final Chunk chunk, final int[][] codes) throws IOException
+	{
+		final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(chunk.localCodes), 1 << 16));
+		final Writer out = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(chunk.codes), UTF_8), 1 << 16);
+
+		try
+		{
+			for(int row=0; row<chunk.numRows; row++)
+			{
+				for(int c=0; c<singleValue.length; c++)
+				{
+					if(singleValue[c])
+						out.write(Integer.toString(codes[c][in.readInt()]));
+					else
+					{
+						final int size = in.readInt();
+
+						for(int i=0; i<size; i++)
+						{
+							out.write(' ');
+							out.write(Integer.toString(codes[c][in.readInt()]));
+						}
+
+						out.write(' ');
+					}
+
+					out.write(';');
+				}
+
+				out.write('\n');
+			}
+		}
+		finally
+		{
+			in.close();
+			out.close();
+		}
+
+		chunk.localCodes.delete();
+	}
+
+
+	/** writes the dictionary file (see {@link TableEncoder}) */
+	private static final class DictionaryWriter
+	{
+		private final File file;
+		private final File positions;
+		private final DataOutputStream out;
+		private final DataOutputStream positionsOut;
+		private final List<String> names = new ArrayList<String>();
+		private final List<Boolean> kinds = new ArrayList<Boolean>();
+		private final List<int[]> ranges = new ArrayList<int[]>();
+		private long position = 0;
+		private int numCodes = 0;
+
+		private DictionaryWriter(final String dictionaryName) throws IOException
+		{
+			file = new File(dictionaryName);
+			positions = File.createTempFile("positions", ".bin");
+			positions.deleteOnExit();
+			out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file), 1 << 16));
+			positionsOut = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(positions), 1 << 16));
+		}
+
+		/** appends the value with the next code */
+		private void add(final String value) throws IOException
+		{
+			final byte[] bytes = value.getBytes(UTF_8);
+
+			if(bytes.length+1 > REGION_BYTES)
+				throw new IOException("value too long: " + value.substring(0, 64) + "...");
+
+			// the value and its new line must lie in the same region
+			if(position / REGION_BYTES != (position + bytes.length) / REGION_BYTES)
+				pad((position / REGION_BYTES + 1) * REGION_BYTES);
+
+			positionsOut.writeLong(position);
+			out.write(bytes);
+			out.write('\n');
+			position += bytes.length+1;
+			numCodes++;
+		}
+
+		private void addAttribute(final String name, final boolean singleValue, final int firstCode, final int numCodes)
+		{
+			names.add(name);
+			kinds.add(singleValue);
+			ranges.add(new int[]{firstCode, numCodes});
+		}
+
+		private void pad(final long to) throws IOException
+		{
+			while(position < to)
+			{
+				out.write(0);
+				position++;
+			}
+		}
+
+		/** appends the positions of the values (at a multiple of 8) and the trailer, followed by its position */
+		private void close() throws IOException
+		{
+			positionsOut.close();
+			pad((position + 7) & ~7L);
+
+			final long positionsPosition = position;
+			final DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(positions), 1 << 16));
+
+			try
+			{
+				for(int code=0; code<numCodes; code++)
+					out.writeLong(in.readLong());
+			}
+			finally
+			{
+				in.close();
+			}
+
+			position += 8L*numCodes;
+
+			final long trailer = position;
+
+			out.writeInt(MAGIC);
+			out.writeInt(VERSION);
+			out.writeInt(numCodes);
+			out.writeLong(positionsPosition);
+			out.writeInt(names.size());
+
+			for(int c=0; c<names.size(); c++)
+			{
+				out.writeUTF(names.get(c));
+				out.writeBoolean(kinds.get(c));
+				out.writeInt(ranges.get(c)[0]);
+				out.writeInt(ranges.get(c)[1]);
+			}
+
+			out.writeLong(trailer);
+			out.close();
+			positions.delete();
+		}
+
+		private void abort() throws IOException
+		{
+			out.close();
+			positionsOut.close();
+			file.delete();
+			positions.delete();
+		}
+	}
+}
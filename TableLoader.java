@@ -0,0 +1,795 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import gnu.trove.list.array.TIntArrayList;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Parallel loader of an input table file (values separated by ';', the values of a multi value attribute separated by spaces, one row by line).
+ *
+ * The file is split at line boundaries into chunks, and each chunk is memory-mapped and parsed by its own worker,
+ * byte by byte, into primitive column buffers; the buffers of the chunks are then concatenated in order into the columns of the {@link Table}.
+ * The transactional copy of the file (';' replaced by spaces, lines ending with "\r\n" ending with '\n') is written once the chunks are parsed,
+ * each chunk by its own worker at its position in the copy, i.e. its position in the file less the carriage returns left out of the previous chunks.
+ *
+ * A file compressed with gzip or zstd (recognized by its first bytes) cannot be mapped: it is decompressed by the calling thread
+ * (by a zstd process for zstd) into a bounded ring of blocks of whole lines, which the workers parse (and copy) while the next blocks are decompressed.
+ */
+public class TableLoader
+{
+	/** the chunks are at most this large (a mapped region cannot exceed 2 GB) ... */
+	private static final long MAX_CHUNK_BYTES = 1L << 26;
+	/** ... and at least this large, unless the file is smaller */
+	private static final long MIN_CHUNK_BYTES = 1L << 20;
+	/** a block of a compressed file holds at least this number of decompressed bytes, unless a line is longer */
+	private static final int BLOCK_BYTES = 1 << 22;
+	private static final byte[] GZIP_MAGIC = {0x1f, (byte) 0x8b};
+	private static final byte[] ZSTD_MAGIC = {0x28, (byte) 0xb5, 0x2f, (byte) 0xfd};
+
+	/** singleValue[c] is true if the c-th column of the file is single value */
+	private final boolean[] singleValue;
+	/** index of each column among the single value or the multi value attributes */
+	private final int[] index;
+	private final int numberOfSVAttributes;
+	private final int numberOfMVAttributes;
+
+	private TableLoader(final String[] attributes)
+	{
+		singleValue = new boolean[attributes.length/2];
+		index = new int[singleValue.length];
+		int sv = 0;
+		int mv = 0;
+
+		for(int c=0; c<singleValue.length; c++)
+		{
+			singleValue[c] = attributes[2*c+1].equals("sv");
+			index[c] = singleValue[c] ? sv++ : mv++;
+		}
+
+		numberOfSVAttributes = sv;
+		numberOfMVAttributes = mv;
+	}
+
+	/**
+	 * loads the input table file
+	 *
+	 * @param attributes the names of the attributes of the table, each one followed by 'sv' (single value) or 'mv' (multi value)
+	 * @param numThreads the number of chunks parsed at the same time (0 for as many as the available processors)
+	 * @param transactionalFile the file to write the transactional copy of the table to (null for no copy)
+	 */
+	public static Table load(final String inputTableName, final String[] attributes, int numThreads, final String transactionalFile) throws Exception
+	{
+		if(numThreads <= 0)
+			numThreads = Runtime.getRuntime().availableProcessors();
+
+		final TableLoader loader = new TableLoader(attributes);
+
+		if(isCompressed(inputTableName))
+			return loadCompressed(loader, inputTableName, attributes, numThreads, transactionalFile);
+
+		final RandomAccessFile input = new RandomAccessFile(inputTableName, "r");
+		final RandomAccessFile output = transactionalFile == null ? null : new RandomAccessFile(transactionalFile, "rw");
+		final ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+
+		try
+		{
+			final FileChannel in = input.getChannel();
+			final FileChannel out = output == null ? null : output.getChannel();
+			final long[] bounds = split(in, numThreads, MIN_CHUNK_BYTES, MAX_CHUNK_BYTES);
+			final List<Future<Chunk>> chunks = new ArrayList<Future<Chunk>>();
+			// the number of carriage returns left out of the copy of each chunk
+			final int[] carriageReturns = new int[bounds.length-1];
+
+			if(output != null)
+				output.setLength(0);
+
+			for(int i=0; i+1<bounds.length; i++)
+			{
+				final int chunkIndex = i;
+				final long start = bounds[i];
+				final long end = bounds[i+1];
+
+				chunks.add(workers.submit(new Callable<Chunk>()
+				{
+					@Override
+					public Chunk call() throws Exception
+					{
+						final MappedByteBuffer buffer = in.map(FileChannel.MapMode.READ_ONLY, start, end-start);
+
+						if(out != null)
+							carriageReturns[chunkIndex] = carriageReturns(buffer);
+
+						return loader.parse(buffer);
+					}
+				}));
+			}
+
+			final List<Chunk> parsed = new ArrayList<Chunk>(chunks.size());
+
+			for(final Future<Chunk> chunk : chunks)
+				parsed.add(chunk.get());
+
+			if(out != null)
+			{
+				final List<Future<?>> copies = new ArrayList<Future<?>>();
+				long position = 0;
+
+				for(int i=0; i+1<bounds.length; i++)
+				{
+					final long start = bounds[i];
+					final long end = bounds[i+1];
+					final long copyPosition = position;
+
+					copies.add(workers.submit(new Callable<Void>()
+					{
+						@Override
+						public Void call() throws Exception
+						{
+							copy(in.map(FileChannel.MapMode.READ_ONLY, start, end-start), out, copyPosition);
+							return null;
+						}
+					}));
+
+					position += end-start - carriageReturns[i];
+				}
+
+				for(final Future<?> copy : copies)
+					copy.get();
+
+				// as println did, the copy ends with a new line
+				if(in.size() > 0 && !endsWithNewLine(in))
+					out.write(ByteBuffer.wrap(new byte[]{'\n'}), position);
+			}
+
+			return loader.concatenate(parsed, inputTableName, attributes);
+		}
+		finally
+		{
+			workers.shutdown();
+			input.close();
+
+			if(output != null)
+				output.close();
+		}
+	}
+
+
+	/** a block of decompressed bytes, made of whole lines */
+	private static final class Block
+	{
+		private byte[] bytes;
+		private int length;
+		/** the position of the block in the transactional copy of the decompressed file */
+		private long position;
+		/** the index of the block in the decompressed file, -1 after the last block */
+		private int sequence;
+
+		private Block(final int size, final int sequence)
+		{
+			bytes = new byte[size];
+			this.sequence = sequence;
+		}
+	}
+
+
+	/** loads a compressed input table file, decompressed into a ring of blocks parsed by numThreads workers */
+	private static Table loadCompressed(final TableLoader loader, final String inputTableName, final String[] attributes, final int numThreads, final String transactionalFile) throws Exception
+	{
+		final InputStream in = open(inputTableName);
+		final RandomAccessFile output = transactionalFile == null ? null : new RandomAccessFile(transactionalFile, "rw");
+		final ExecutorService workers = Executors.newFixedThreadPool(numThreads);
+		// two blocks per worker, so that a block is decompressed while the others are parsed
+		final BlockingQueue<Block> free = new ArrayBlockingQueue<Block>(2*numThreads);
+		final BlockingQueue<Block> filled = new ArrayBlockingQueue<Block>(2*numThreads);
+		final Map<Integer,Chunk> parsed = new ConcurrentHashMap<Integer,Chunk>();
+		final List<Exception> errors = Collections.synchronizedList(new ArrayList<Exception>());
+		final List<Future<?>> parsers = new ArrayList<Future<?>>();
+
+		try
+		{
+			final FileChannel out = output == null ? null : output.getChannel();
+
+			if(output != null)
+				output.setLength(0);
+
+			for(int i=0; i<2*numThreads; i++)
+				free.add(new Block(BLOCK_BYTES, 0));
+
+			for(int i=0; i<numThreads; i++)
+				parsers.add(workers.submit(new Callable<Void>()
+				{
+					@Override
+					public Void call() throws Exception
+					{
+						Block block;
+
+						while((block = filled.take()).sequence >= 0)
+						{
+							try
+							{
+								// after an error the blocks are only given back, so that the decompression never waits for them
+								if(errors.isEmpty())
+								{
+									final ByteBuffer buffer = ByteBuffer.wrap(block.bytes, 0, block.length);
+
+									if(out != null)
+										copy(buffer, out, block.position);
+
+									parsed.put(block.sequence, loader.parse(buffer));
+								}
+							}
+							catch(final Exception e)
+							{
+								errors.add(e);
+							}
+							finally
+							{
+								free.put(block);
+							}
+						}
+
+						return null;
+					}
+				}));
+
+			int numBlocks = 0;
+			long position = 0;
+			byte last = '\n';
+
+			try
+			{
+				byte[] carry = new byte[BLOCK_BYTES];
+				int carryLength = 0;
+				boolean endOfFile = false;
+
+				while(!endOfFile && errors.isEmpty())
+				{
+					final Block block = free.take();
+
+					if(block.bytes.length < 2*carryLength)
+						block.bytes = new byte[2*carryLength];
+
+					// the partial line at the end of the previous block starts this one
+					System.arraycopy(carry, 0, block.bytes, 0, carryLength);
+					int length = carryLength;
+					int end;
+
+					while(true)
+					{
+						while(length < block.bytes.length)
+						{
+							final int read = in.read(block.bytes, length, block.bytes.length-length);
+
+							if(read < 0)
+							{
+								endOfFile = true;
+								break;
+							}
+
+							length += read;
+						}
+
+						end = length;
+
+						if(!endOfFile)
+							while(end > 0 && block.bytes[end-1] != '\n')
+								end--;
+
+						if(end > 0 || endOfFile)
+							break;
+
+						// a line longer than the block
+						block.bytes = Arrays.copyOf(block.bytes, 2*block.bytes.length);
+					}
+
+					carryLength = length-end;
+
+					if(carry.length < carryLength)
+						carry = new byte[block.bytes.length];
+
+					System.arraycopy(block.bytes, end, carry, 0, carryLength);
+
+					if(end == 0)
+					{
+						free.put(block);
+						continue;
+					}
+
+					block.length = end;
+					block.position = position;
+					block.sequence = numBlocks++;
+
+					if(out != null)
+						position += end - carriageReturns(ByteBuffer.wrap(block.bytes, 0, end));
+					last = block.bytes[end-1];
+
+					filled.put(block);
+				}
+			}
+			finally
+			{
+				for(int i=0; i<numThreads; i++)
+					filled.put(new Block(0, -1));
+
+				in.close();
+			}
+
+			for(final Future<?> parser : parsers)
+				parser.get();
+
+			if(!errors.isEmpty())
+				throw errors.get(0);
+
+			// as println did, the copy ends with a new line
+			if(out != null && position > 0 && last != '\n')
+				out.write(ByteBuffer.wrap(new byte[]{'\n'}), position);
+
+			final List<Chunk> chunks = new ArrayList<Chunk>(numBlocks);
+
+			for(int i=0; i<numBlocks; i++)
+				chunks.add(parsed.remove(i));
+
+			return loader.concatenate(chunks, inputTableName, attributes);
+		}
+		finally
+		{
+			workers.shutdownNow();
+
+			if(output != null)
+				output.close();
+		}
+	}
+
+
+	/** true if the file starts as a file compressed by gzip or zstd */
+	static boolean isCompressed(final String fileName) throws IOException
+	{
+		return compression(fileName) != null;
+	}
+
+
+	/** returns the magic number of the compression of the file (gzip or zstd), null if the file is not compressed */
+	private static byte[] compression(final String fileName) throws IOException
+	{
+		final byte[] start = new byte[ZSTD_MAGIC.length];
+		final FileInputStream in = new FileInputStream(fileName);
+		int length = 0;
+
+		try
+		{
+			for(int read; length < start.length && (read = in.read(start, length, start.length-length)) > 0; )
+				length += read;
+		}
+		finally
+		{
+			in.close();
+		}
+
+		for(final byte[] magic : new byte[][]{GZIP_MAGIC, ZSTD_MAGIC})
+			if(length >= magic.length && Arrays.equals(Arrays.copyOf(start, magic.length), magic))
+				return magic;
+
+		return null;
+	}
+
+
+	/**
+	 * opens the input table file, decompressing it if it is compressed by gzip (with a GZIPInputStream) or by zstd (with a 'zstd -dc' process,
+	 * whose exit status is checked when the stream is closed)
+	 */
+	public static InputStream open(final String fileName) throws IOException
+	{
+		final byte[] compression = compression(fileName);
+
+		if(compression == GZIP_MAGIC)
+			return new GZIPInputStream(new FileInputStream(fileName), 1 << 16);
+
+		if(compression == ZSTD_MAGIC)
+		{
+			final Process process;
+
+			try
+			{
+				process = new ProcessBuilder("zstd", "-dc", fileName).redirectError(ProcessBuilder.Redirect.INHERIT).start();
+			}
+			catch(final IOException e)
+			{
+				throw new IOException("cannot run zstd to decompress " + fileName, e);
+			}
+
+			return new BufferedInputStream(process.getInputStream(), 1 << 16)
+			{
+				@Override
+				public void close() throws IOException
+				{
+					super.close();
+
+					try
+					{
+						if(process.waitFor() != 0)
+							throw new IOException("zstd cannot decompress " + fileName + " (exit status " + process.exitValue() + ")");
+					}
+					catch(final InterruptedException e)
+					{
+						process.destroy();
+						throw new InterruptedIOException("interrupted while decompressing " + fileName);
+					}
+				}
+			};
+		}
+
+		return new BufferedInputStream(new FileInputStream(fileName), 1 << 16);
+	}
+
+
+	/**
+	 * returns the bounds of the chunks of a file, at least one per thread if they are large enough:
+	 * each chunk starts at the beginning of a line and ends after a new line (or at the end of the file)
+	 */
+	static long[] split(final FileChannel in, final int numThreads, final long minChunkBytes, final long maxChunkBytes) throws IOException
+	{
+		final long size = in.size();
+		long numChunks = Math.max(numThreads, (size + maxChunkBytes - 1) / maxChunkBytes);
+		numChunks = Math.max(1, Math.min(numChunks, (size + minChunkBytes - 1) / minChunkBytes));
+
+		final long[] bounds = new long[(int) numChunks + 1];
+		int n = 1;
+
+		for(int i=1; i<numChunks; i++)
+		{
+			final long bound = nextLine(in, Math.max(bounds[n-1], size * i / numChunks));
+
+			if(bound > bounds[n-1] && bound < size)
+				bounds[n++] = bound;
+		}
+
+		bounds[n++] = size;
+
+		return Arrays.copyOf(bounds, n);
+	}
+
+
+	/** returns the position following the first new line at or after position-1, i.e. the beginning of the line after the one containing position-1 */
+	private static long nextLine(final FileChannel in, long position) throws IOException
+	{
+		final ByteBuffer buffer = ByteBuffer.allocate(8192);
+		position = Math.max(0, position-1);
+
+		while(position < in.size())
+		{
+			buffer.clear();
+			final int read = in.read(buffer, position);
+
+			for(int i=0; i<read; i++)
+				if(buffer.get(i) == '\n')
+					return position + i + 1;
+
+			position += read;
+		}
+
+		return in.size();
+	}
+
+
+	private static boolean endsWithNewLine(final FileChannel in) throws IOException
+	{
+		final ByteBuffer last = ByteBuffer.allocate(1);
+		in.read(last, in.size()-1);
+
+		return last.get(0) == '\n';
+	}
+
+
+	/** true if the i-th byte of the chunk is the carriage return of a line ending with "\r\n" (or of the last line of the file), left out of the copy */
+	private static boolean isLineEnd(final ByteBuffer chunk, final int i)
+	{
+		return chunk.get(i) == '\r' && (i+1 == chunk.limit() || chunk.get(i+1) == '\n');
+	}
+
+
+	/** the number of carriage returns of the chunk left out of its copy */
+	private static int carriageReturns(final ByteBuffer chunk)
+	{
+		int n = 0;
+
+		for(int i=0; i<chunk.limit(); i++)
+			if(isLineEnd(chunk, i))
+				n++;
+
+		return n;
+	}
+
+
+	/** writes the chunk at the given position of the transactional copy, with ';' replaced by spaces and the lines ending with '\n' only */
+	private static void copy(final ByteBuffer chunk, final FileChannel out, long position) throws IOException
+	{
+		final byte[] bytes = new byte[1 << 16];
+		final ByteBuffer buffer = ByteBuffer.wrap(bytes);
+		int length = 0;
+
+		for(int p=0; p<chunk.limit(); p++)
+		{
+			final byte b = chunk.get(p);
+
+			if(b == '\r' && isLineEnd(chunk, p))
+				continue;
+
+			bytes[length++] = b == ';' ? (byte) ' ' : b;
+
+			if(length == bytes.length)
+			{
+				buffer.clear();
+				buffer.limit(length);
+
+				while(buffer.hasRemaining())
+					position += out.write(buffer, position);
+
+				length = 0;
+			}
+		}
+
+		buffer.clear();
+		buffer.limit(length);
+
+		while(buffer.hasRemaining())
+			position += out.write(buffer, position);
+	}
+
+
+	/** the values of the rows of a chunk */
+	private static final class Chunk
+	{
+		private final TIntArrayList[] svValues;
+		/** the end of the values of each row in mvValues (the offsets of the rows but the first one) */
+		private final TIntArrayList[] mvEnds;
+		private final TIntArrayList[] mvValues;
+		private int numRows = 0;
+
+		private Chunk(final int numberOfSVAttributes, final int numberOfMVAttributes)
+		{
+			svValues = new TIntArrayList[numberOfSVAttributes];
+			mvEnds = new TIntArrayList[numberOfMVAttributes];
+			mvValues = new TIntArrayList[numberOfMVAttributes];
+
+			for(int c=0; c<numberOfSVAttributes; c++)
+				svValues[c] = new TIntArrayList();
+
+			for(int c=0; c<numberOfMVAttributes; c++)
+			{
+				mvEnds[c] = new TIntArrayList();
+				mvValues[c] = new TIntArrayList();
+			}
+		}
+	}
+
+
+	/**
+	 * parses the rows of a chunk. as with a StringTokenizer, empty values (two consecutive ';') are skipped,
+	 * while a value made of spaces only is an empty set of values of a multi value attribute
+	 */
+	private Chunk parse(final ByteBuffer buffer) throws IOException
+	{
+		final Chunk chunk = new Chunk(numberOfSVAttributes, numberOfMVAttributes);
+		final int limit = buffer.limit();
+		int[] set = new int[16];
+		int p = 0;
+
+		while(p < limit)
+		{
+			int column = 0;
+			boolean endOfLine = false;
+
+			while(!endOfLine)
+			{
+				int q = p;
+				byte b = 0;
+
+				while(q < limit && (b = buffer.get(q)) != ';' && b != '\n')
+					q++;
+
+				endOfLine = q == limit || b == '\n';
+				// the end of the value, without the carriage return of a line ending with "\r\n"
+				final int end = endOfLine && q > p && buffer.get(q-1) == '\r' ? q-1 : q;
+
+				if(end > p && column < singleValue.length)
+				{
+					if(singleValue[column])
+						chunk.svValues[index[column]].add(parseValue(buffer, p, end));
+					else
+					{
+						int n = 0;
+						int i = skipSpaces(buffer, p, end);
+
+						while(i < end)
+						{
+							if(n == set.length)
+								set = Arrays.copyOf(set, 2*n);
+
+							final int next = endOfValue(buffer, i, end);
+							set[n++] = parseInt(buffer, i, next);
+							i = skipSpaces(buffer, next, end);
+						}
+
+						// the values of a row are stored sorted and without duplicates
+						Arrays.sort(set, 0, n);
+						final TIntArrayList values = chunk.mvValues[index[column]];
+
+						for(int v=0; v<n; v++)
+							if(v == 0 || set[v] != set[v-1])
+								values.add(set[v]);
+
+						chunk.mvEnds[index[column]].add(values.size());
+					}
+
+					column++;
+				}
+
+				p = q+1;
+			}
+
+			if(column > 0)
+			{
+				if(column < singleValue.length)
+					throw new IOException("a row has " + column + " values instead of " + singleValue.length);
+
+				chunk.numRows++;
+			}
+		}
+
+		return chunk;
+	}
+
+
+	/** parses the only integer between start and end, surrounded by spaces */
+	private static int parseValue(final ByteBuffer buffer, final int start, final int end)
+	{
+		final int i = skipSpaces(buffer, start, end);
+		final int next = endOfValue(buffer, i, end);
+
+		if(skipSpaces(buffer, next, end) < end)
+			throw new NumberFormatException("not a single value: " + string(buffer, start, end));
+
+		return parseInt(buffer, i, next);
+	}
+
+
+	/** parses the integer written in ASCII between start and end (an optional '-' followed by digits) */
+	private static int parseInt(final ByteBuffer buffer, int start, final int end)
+	{
+		final boolean negative = start < end && buffer.get(start) == '-';
+
+		if(negative)
+			start++;
+
+		if(start == end)
+			throw new NumberFormatException("not a number: " + string(buffer, start, end));
+
+		// the value is accumulated as a negative number, as Integer.MIN_VALUE has no positive counterpart
+		final int limit = negative ? Integer.MIN_VALUE : -Integer.MAX_VALUE;
+		int value = 0;
+
+		for(int i=start; i<end; i++)
+		{
+			final int digit = buffer.get(i) - '0';
+
+			if(digit < 0 || digit > 9)
+				throw new NumberFormatException("not a number: " + string(buffer, start, end));
+
+			if(value < limit/10 || 10*value < limit + digit)
+				throw new NumberFormatException("out of the range of an integer: " + string(buffer, negative ? start-1 : start, end));
+
+			value = 10*value - digit;
+		}
+
+		return negative ? value : -value;
+	}
+
+
+	private static int skipSpaces(final ByteBuffer buffer, int i, final int end)
+	{
+		while(i < end && isSpace(buffer.get(i)))
+			i++;
+
+		return i;
+	}
+
+
+	private static int endOfValue(final ByteBuffer buffer, int i, final int end)
+	{
+		while(i < end && !isSpace(buffer.get(i)))
+			i++;
+
+		return i;
+	}
+
+
+	private static boolean isSpace(final byte b)
+	{
+		return b == ' ' || b == '\t' || b == '\r';
+	}
+
+
+	private static String string(final ByteBuffer buffer, final int start, final int end)
+	{
+		final byte[] bytes = new byte[end-start];
+
+		for(int i=start; i<end; i++)
+			bytes[i-start] = buffer.get(i);
+
+		return new String(bytes);
+	}
+
+
+	/** concatenates the columns of the chunks, in order */
+	private Table concatenate(final List<Chunk> chunks, final String inputTableName, final String[] attributes)
+	{
+		int numRows = 0;
+
+		for(final Chunk chunk : chunks)
+			numRows += chunk.numRows;
+
+		final String[] svNames = new String[numberOfSVAttributes];
+		final String[] mvNames = new String[numberOfMVAttributes];
+
+		for(int c=0; c<singleValue.length; c++)
+			if(singleValue[c])
+				svNames[index[c]] = attributes[2*c];
+			else
+				mvNames[index[c]] = attributes[2*c];
+
+		final int[][] svValues = new int[numberOfSVAttributes][];
+		final int[][] mvOffsets = new int[numberOfMVAttributes][];
+		final int[][] mvValues = new int[numberOfMVAttributes][];
+
+		for(int c=0; c<numberOfSVAttributes; c++)
+		{
+			svValues[c] = new int[numRows];
+			int row = 0;
+
+			for(final Chunk chunk : chunks)
+			{
+				chunk.svValues[c].toArray(svValues[c], 0, row, chunk.svValues[c].size());
+				row += chunk.svValues[c].size();
+				chunk.svValues[c] = null;
+			}
+		}
+
+		for(int c=0; c<numberOfMVAttributes; c++)
+		{
+			int numValues = 0;
+
+			for(final Chunk chunk : chunks)
+				numValues += chunk.mvValues[c].size();
+
+			mvOffsets[c] = new int[numRows+1];
+			mvValues[c] = new int[numValues];
+			int row = 0;
+			int base = 0;
+
+			for(final Chunk chunk : chunks)
+			{
+				for(int r=0; r<chunk.mvEnds[c].size(); r++)
+					mvOffsets[c][++row] = base + chunk.mvEnds[c].get(r);
+
+				chunk.mvValues[c].toArray(mvValues[c], 0, base, chunk.mvValues[c].size());
+				base += chunk.mvValues[c].size();
+				chunk.mvEnds[c] = null;
+				chunk.mvValues[c] = null;
+			}
+		}
+
+		return new Table(svNames, svValues, mvNames, mvOffsets, mvValues, inputTableName, attributes);
+	}
+}
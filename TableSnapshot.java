@@ -0,0 +1,425 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary snapshot of a loaded {@link Table}, so that the next runs on the same input table file open it instead of parsing the file again.
+ *
+ * The snapshot holds a header (version, length and last modification time of the input file, attributes, number of rows)
+ * followed by the primitive columns of the table and the domains of its attributes, as little endian integers:
+ * for each single value attribute its domain and its values; for each multi value attribute its domain, its offsets and its values (see {@link Table}).
+ * The file ends with a CRC32 checksum of all the preceding bytes.
+ * The columns are read through memory mappings of the file, with a bulk copy per mapped region, and the domains are not computed again;
+ * alternatively the columns are not copied, and the table is a {@link MappedTable} reading them from the mapped regions of the snapshot.
+ * A snapshot not matching the input file or the attributes, truncated or with a wrong checksum, is ignored (and replaced).
+ */
+public class TableSnapshot
+{
+	private static final int MAGIC = 0x49464D54;
+	private static final int VERSION = 1;
+	/** the columns are read by mapped regions of at most this number of bytes */
+	private static final int MAX_REGION_BYTES = 1 << 30;
+
+	private TableSnapshot()
+	{
+	}
+
+	/**
+	 * opens the snapshot of the input table file
+	 *
+	 * @param attributes the names of the attributes of the table, each one followed by 'sv' (single value) or 'mv' (multi value)
+	 * @param offHeap true to keep the columns in the mapped snapshot (see {@link MappedTable}), false to copy them to the heap
+	 * @return the table, null if there is no valid snapshot for the input table file and the attributes (or if it cannot be read)
+	 */
+	public static Table open(final File snapshot, final String inputTableName, final String[] attributes, final boolean offHeap) throws IOException
+	{
+		if(!snapshot.exists())
+		{
+			System.out.println("No snapshot of the table in " + snapshot);
+			return null;
+		}
+
+		final File input = new File(inputTableName);
+		final RandomAccessFile file = new RandomAccessFile(snapshot, "r");
+
+		try
+		{
+			final FileChannel channel = file.getChannel();
+			final CRC32 crc = new CRC32();
+
+			if(channel.size() < 4 + 8)
+			{
+				System.out.println("The snapshot in " + snapshot + " is truncated");
+				return null;
+			}
+
+			final ByteBuffer headerLength = ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(headerLength, 0);
+			crc.update(headerLength.array());
+
+			final int length = headerLength.getInt(0);
+
+			if(length < 0 || 4L + length + 8 > channel.size())
+			{
+				System.out.println("The snapshot in " + snapshot + " is truncated");
+				return null;
+			}
+
+			final ByteBuffer header = ByteBuffer.allocate(length);
+			channel.read(header, 4);
+			crc.update(header.array());
+
+			final DataInputStream in = new DataInputStream(new ByteArrayInputStream(header.array()));
+
+			if(in.readInt() != MAGIC || in.readInt() != VERSION)
+			{
+				System.out.println("Unknown version of the snapshot in " + snapshot);
+				return null;
+			}
+
+			final long inputLength = in.readLong();
+			final long inputLastModified = in.readLong();
+			final String[] snapshotAttributes = new String[readCount(in)];
+
+			for(int i=0; i<snapshotAttributes.length; i++)
+				snapshotAttributes[i] = in.readUTF();
+
+			if(inputLength != input.length() || inputLastModified != input.lastModified() || !Arrays.equals(snapshotAttributes, attributes))
+			{
+				System.out.println("The snapshot in " + snapshot + " does not match the input table or the attributes");
+				return null;
+			}
+
+			final int numRows = in.readInt();
+			final String[] svNames = new String[readCount(in)];
+			final String[] mvNames = new String[readCount(in)];
+
+			for(int c=0; c<svNames.length; c++)
+				svNames[c] = in.readUTF();
+
+			for(int c=0; c<mvNames.length; c++)
+				mvNames[c] = in.readUTF();
+
+			final int[][] svDomains = new int[svNames.length][];
+			final int[][] svValues = new int[svNames.length][];
+			final int[][] mvDomains = new int[mvNames.length][];
+			final int[][] mvOffsets = new int[mvNames.length][];
+			final int[][] mvValues = new int[mvNames.length][];
+			final IntBuffer[][] svMapped = new IntBuffer[svNames.length][];
+			final IntBuffer[][] mvMappedOffsets = new IntBuffer[mvNames.length][];
+			final IntBuffer[][] mvMappedValues = new IntBuffer[mvNames.length][];
+			final long[] position = {align(4L + length)};
+
+			crc.update(new byte[(int) (position[0] - 4 - length)]);
+
+			for(int c=0; c<svNames.length; c++)
+			{
+				svDomains[c] = readInts(channel, position, readInt(channel, position, crc), crc);
+
+				if(offHeap)
+					svMapped[c] = mapInts(channel, position, numRows, crc);
+				else
+					svValues[c] = readInts(channel, position, numRows, crc);
+			}
+
+			for(int c=0; c<mvNames.length; c++)
+			{
+				mvDomains[c] = readInts(channel, position, readInt(channel, position, crc), crc);
+				final int numValues = readInt(channel, position, crc);
+
+				if(offHeap)
+				{
+					mvMappedOffsets[c] = mapInts(channel, position, numRows+1, crc);
+					mvMappedValues[c] = mapInts(channel, position, numValues, crc);
+				}
+				else
+				{
+					mvOffsets[c] = readInts(channel, position, numRows+1, crc);
+					mvValues[c] = readInts(channel, position, numValues, crc);
+				}
+			}
+
+			final ByteBuffer checksum = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+			channel.read(checksum, position[0]);
+
+			if(position[0] + 8 != channel.size() || checksum.getLong(0) != crc.getValue())
+			{
+				System.out.println("Wrong checksum of the snapshot in " + snapshot);
+				return null;
+			}
+
+			if(offHeap)
+				return new MappedTable(svNames, svMapped, mvNames, mvMappedOffsets, mvMappedValues, numRows, svDomains, mvDomains, inputTableName, attributes);
+
+			return new Table(svNames, svValues, mvNames, mvOffsets, mvValues, svDomains, mvDomains, inputTableName, attributes);
+		}
+		catch(final IOException e)
+		{
+			// a truncated or corrupt snapshot, whose checksum cannot even be computed
+			System.out.println("The snapshot in " + snapshot + " cannot be read: " + e.getMessage());
+			return null;
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+
+
+	/** stores the snapshot of the table loaded from the input table file (written to a temporary file first, so a failure never leaves a truncated snapshot) */
+	public static void save(final Table table, final File snapshot, final String inputTableName, final String[] attributes) throws IOException
+	{
+		final File input = new File(inputTableName);
+		final File temporary = new File(snapshot.getPath() + ".tmp");
+		final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		final DataOutputStream header = new DataOutputStream(bytes);
+
+		header.writeInt(MAGIC);
+		header.writeInt(VERSION);
+		header.writeLong(input.length());
+		header.writeLong(input.lastModified());
+		header.writeInt(attributes.length);
+
+		for(final String attribute : attributes)
+			header.writeUTF(attribute);
+
+		header.writeInt(table.getSize());
+		header.writeInt(table.getNumberOfSVAttributes());
+		header.writeInt(table.getNumberOfMVAttribute());
+
+		for(int c=0; c<table.getNumberOfSVAttributes(); c++)
+			header.writeUTF(table.getSVName(c));
+
+		for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+			header.writeUTF(table.getMVName(c));
+
+		header.close();
+
+		final RandomAccessFile file = new RandomAccessFile(temporary, "rw");
+
+		try
+		{
+			file.setLength(0);
+
+			final Writer out = new Writer(file.getChannel());
+
+			out.putInt(bytes.size());
+			out.put(bytes.toByteArray());
+
+			// the columns start at a multiple of 4 bytes
+			while(out.position() % 4 != 0)
+				out.put(new byte[]{0});
+
+			for(int c=0; c<table.getNumberOfSVAttributes(); c++)
+			{
+				final int[] domain = table.getSVDomain(c).toArray();
+				Arrays.sort(domain);
+
+				out.putInt(domain.length);
+				out.putInts(domain, domain.length);
+				out.putInts(table.getSVColumn(c), table.getSize());
+			}
+
+			for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+			{
+				final int[] domain = table.getMVDomain(c).toArray();
+				Arrays.sort(domain);
+				final int[] offsets = table.getMVOffsets(c);
+
+				out.putInt(domain.length);
+				out.putInts(domain, domain.length);
+				out.putInt(offsets[table.getSize()]);
+				out.putInts(offsets, table.getSize()+1);
+				out.putInts(table.getMVValues(c), offsets[table.getSize()]);
+			}
+
+			out.close();
+		}
+		finally
+		{
+			file.close();
+		}
+
+		// the previous snapshot is replaced at once, so that a failure leaves either the old or the new one
+		try
+		{
+			Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+		}
+		catch(final AtomicMoveNotSupportedException e)
+		{
+			Files.move(temporary.toPath(), snapshot.toPath(), StandardCopyOption.REPLACE_EXISTING);
+		}
+	}
+
+
+	/** reads a number of names of the header, which cannot exceed the bytes left (at least two per name) */
+	private static int readCount(final DataInputStream in) throws IOException
+	{
+		final int n = in.readInt();
+
+		if(n < 0 || 2L*n > in.available())
+			throw new EOFException("the snapshot is truncated");
+
+		return n;
+	}
+
+
+	private static long align(final long position)
+	{
+		return (position + 3) & ~3L;
+	}
+
+
+	private static int readInt(final FileChannel channel, final long[] position, final CRC32 crc) throws IOException
+	{
+		return readInts(channel, position, 1, crc)[0];
+	}
+
+
+	/** reads n integers from position (moved after them) through mapped regions of the file, adding them to the checksum */
+	private static int[] readInts(final FileChannel channel, final long[] position, final int n, final CRC32 crc) throws IOException
+	{
+		if(n < 0 || position[0] + 4L*n > channel.size())
+			throw new EOFException("the snapshot is truncated");
+
+		final int[] values = new int[n];
+
+		for(int i=0; i<n; )
+		{
+			final int count = Math.min(n-i, MAX_REGION_BYTES/4);
+			final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position[0], 4L*count);
+
+			crc.update(region.duplicate());
+			region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer().get(values, i, count);
+
+			position[0] += 4L*count;
+			i += count;
+		}
+
+		return values;
+	}
+
+
+	/**
+	 * maps n integers from position (moved after them) in regions of {@link MappedTable#REGION_INTS} integers, adding them to the checksum
+	 * (the mappings stay valid after the channel is closed)
+	 */
+	private static IntBuffer[] mapInts(final FileChannel channel, final long[] position, final int n, final CRC32 crc) throws IOException
+	{
+		if(n < 0 || position[0] + 4L*n > channel.size())
+			throw new EOFException("the snapshot is truncated");
+
+		final IntBuffer[] regions = new IntBuffer[Math.max(1, (n + MappedTable.REGION_INTS - 1) / MappedTable.REGION_INTS)];
+
+		for(int i=0, r=0; r<regions.length; r++)
+		{
+			final int count = Math.min(n-i, MappedTable.REGION_INTS);
+			final MappedByteBuffer region = channel.map(FileChannel.MapMode.READ_ONLY, position[0], 4L*count);
+
+			crc.update(region.duplicate());
+			regions[r] = region.order(ByteOrder.LITTLE_ENDIAN).asIntBuffer();
+
+			position[0] += 4L*count;
+			i += count;
+		}
+
+		return regions;
+	}
+
+
+	/** writes little endian integers to a channel through a reusable buffer, computing the checksum, which is written at the end */
+	private static final class Writer
+	{
+		private final FileChannel channel;
+		private final ByteBuffer buffer = ByteBuffer.allocateDirect(1 << 20).order(ByteOrder.LITTLE_ENDIAN);
+		private final CRC32 crc = new CRC32();
+		private long position = 0;
+
+		private Writer(final FileChannel channel)
+		{
+			this.channel = channel;
+		}
+
+		private long position()
+		{
+			return position;
+		}
+
+		private void put(final byte[] bytes) throws IOException
+		{
+			for(final byte b : bytes)
+			{
+				if(!buffer.hasRemaining())
+					flush();
+
+				buffer.put(b);
+				position++;
+			}
+		}
+
+		private void putInt(final int value) throws IOException
+		{
+			if(buffer.remaining() < 4)
+				flush();
+
+			buffer.putInt(value);
+			position += 4;
+		}
+
+		private void putInts(final int[] values, final int n) throws IOException
+		{
+			for(int i=0; i<n; )
+			{
+				if(buffer.remaining() < 4)
+					flush();
+
+				final int count = Math.min(n-i, buffer.remaining()/4);
+				buffer.asIntBuffer().put(values, i, count);
+				buffer.position(buffer.position() + 4*count);
+
+				position += 4L*count;
+				i += count;
+			}
+		}
+
+		private void flush() throws IOException
+		{
+			buffer.flip();
+			crc.update(buffer.duplicate());
+
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+
+			buffer.clear();
+		}
+
+		/** writes the checksum of all the bytes written */
+		private void close() throws IOException
+		{
+			flush();
+
+			buffer.putLong(crc.getValue()).flip();
+
+			while(buffer.hasRemaining())
+				channel.write(buffer);
+
+			buffer.clear();
+		}
+	}
+}
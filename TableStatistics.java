@@ -0,0 +1,252 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.util.*;
+
+/**
+ * Statistics of the columns of a {@link Table}, collected in a single pass over each column:
+ *  - the values of each attribute, sorted, with the number of rows having each of them (the cardinality of the attribute is their number);
+ *  - the number of rows having each number of values, for each multi value attribute;
+ *  - the support of each item, i.e. the number of rows containing it (in any attribute);
+ *  - the single value attribute of each item, as in {@link Transactions}.
+ * They are shared by the stages needing them (the frequent items, the singletons of the frontier, the variables of the {@link Solver})
+ * instead of scanning the table again.
+ */
+public class TableStatistics
+{
+	/** the item is not a value of the table */
+	public static final int UNSEEN = -1;
+	/** the item is a value of a multi value attribute, or of more than one attribute */
+	public static final int NOT_SINGLE_VALUE = -2;
+
+	private final int numRows;
+	/** greatest item + 1 */
+	private final int numItems;
+	/** svValues[c] are the values of the c-th single value attribute, sorted, and svFrequencies[c][i] the number of rows having svValues[c][i] */
+	private final int[][] svValues;
+	private final int[][] svFrequencies;
+	private final int[][] mvValues;
+	private final int[][] mvFrequencies;
+	/** mvSizes[c][k] is the number of rows having k values of the c-th multi value attribute */
+	private final int[][] mvSizes;
+	private final int[] supports;
+	private final int[] singleValueAttribute;
+
+	public TableStatistics(final Table table)
+	{
+		numRows = table.getSize();
+		svValues = new int[table.getNumberOfSVAttributes()][];
+		svFrequencies = new int[table.getNumberOfSVAttributes()][];
+		mvValues = new int[table.getNumberOfMVAttribute()][];
+		mvFrequencies = new int[table.getNumberOfMVAttribute()][];
+		mvSizes = new int[table.getNumberOfMVAttribute()][];
+
+		int max = -1;
+
+		for(int c=0; c<svValues.length; c++)
+		{
+			svValues[c] = table.getSVDomain(c).toArray();
+			Arrays.sort(svValues[c]);
+
+			if(svValues[c].length > 0)
+				max = Math.max(max, svValues[c][svValues[c].length-1]);
+		}
+
+		for(int c=0; c<mvValues.length; c++)
+		{
+			mvValues[c] = table.getMVDomain(c).toArray();
+			Arrays.sort(mvValues[c]);
+
+			if(mvValues[c].length > 0)
+				max = Math.max(max, mvValues[c][mvValues[c].length-1]);
+		}
+
+		numItems = max+1;
+		supports = new int[numItems];
+		singleValueAttribute = new int[numItems];
+		Arrays.fill(singleValueAttribute, UNSEEN);
+
+		// the number of attributes having each item
+		final int[] numAttributes = new int[numItems];
+		// the number of rows having each value of the current attribute
+		final int[] counts = new int[numItems];
+
+		for(int c=0; c<svValues.length; c++)
+		{
+			for(int r=0; r<numRows; r++)
+				counts[table.getSVValue(c, r)]++;
+
+			svFrequencies[c] = frequencies(svValues[c], counts, numAttributes);
+
+			for(final int value : svValues[c])
+				singleValueAttribute[value] = singleValueAttribute[value] == UNSEEN ? c : NOT_SINGLE_VALUE;
+		}
+
+		for(int c=0; c<mvValues.length; c++)
+		{
+			mvSizes[c] = new int[1];
+
+			for(int r=0; r<numRows; r++)
+			{
+				final int size = table.getMVSize(c, r);
+
+				if(size >= mvSizes[c].length)
+					mvSizes[c] = Arrays.copyOf(mvSizes[c], Math.max(2*mvSizes[c].length, size+1));
+
+				mvSizes[c][size]++;
+
+				for(int k=0; k<size; k++)
+					counts[table.getMVValue(c, r, k)]++;
+			}
+
+			int maxSize = mvSizes[c].length-1;
+
+			while(maxSize > 0 && mvSizes[c][maxSize] == 0)
+				maxSize--;
+
+			mvSizes[c] = Arrays.copyOf(mvSizes[c], maxSize+1);
+			mvFrequencies[c] = frequencies(mvValues[c], counts, numAttributes);
+
+			for(final int value : mvValues[c])
+				singleValueAttribute[value] = NOT_SINGLE_VALUE;
+		}
+
+		for(int i=0; i<numItems; i++)
+			if(numAttributes[i] > 1)
+			{
+				countSharedItems(table, numAttributes);
+				break;
+			}
+	}
+
+	/** returns the frequencies of the values (then reset in counts), adding them to their supports */
+	private int[] frequencies(final int[] values, final int[] counts, final int[] numAttributes)
+	{
+		final int[] frequencies = new int[values.length];
+
+		for(int i=0; i<values.length; i++)
+		{
+			frequencies[i] = counts[values[i]];
+			counts[values[i]] = 0;
+			supports[values[i]] += frequencies[i];
+			numAttributes[values[i]]++;
+		}
+
+		return frequencies;
+	}
+
+	/** counts again the support of the items of more than one attribute, as a row having such an item in two attributes contains it once */
+	private void countSharedItems(final Table table, final int[] numAttributes)
+	{
+		// lastRow[i] is the last row containing the item i + 1
+		final int[] lastRow = new int[numItems];
+
+		for(int i=0; i<numItems; i++)
+			if(numAttributes[i] > 1)
+				supports[i] = 0;
+
+		for(int r=0; r<numRows; r++)
+		{
+			for(int c=0; c<svValues.length; c++)
+				countSharedItem(table.getSVValue(c, r), r, numAttributes, lastRow);
+
+			for(int c=0; c<mvValues.length; c++)
+				for(int k=0; k<table.getMVSize(c, r); k++)
+					countSharedItem(table.getMVValue(c, r, k), r, numAttributes, lastRow);
+		}
+	}
+
+	private void countSharedItem(final int item, final int row, final int[] numAttributes, final int[] lastRow)
+	{
+		if(numAttributes[item] > 1 && lastRow[item] != row+1)
+		{
+			lastRow[item] = row+1;
+			supports[item]++;
+		}
+	}
+
+	public int getNumRows()
+	{
+		return numRows;
+	}
+
+	/** greatest item + 1 */
+	public int getNumItems()
+	{
+		return numItems;
+	}
+
+	/** number of rows containing the item */
+	public int getSupport(final int item)
+	{
+		return item >= 0 && item < numItems ? supports[item] : 0;
+	}
+
+	/** the number of rows containing each item, numItems long (not to be modified) */
+	public int[] getSupports()
+	{
+		return supports;
+	}
+
+	/** true if the item is in at least s * number of rows rows */
+	public boolean isFrequent(final int item, final double s)
+	{
+		return (double)getSupport(item)/(double)numRows >= s;
+	}
+
+	/**
+	 * the index of the single value attribute of each item, numItems long (not to be modified):
+	 * UNSEEN if the item is not in the table, NOT_SINGLE_VALUE if it is a value of a multi value attribute or of more than one attribute
+	 */
+	public int[] getSingleValueAttributes()
+	{
+		return singleValueAttribute;
+	}
+
+	/** number of values of the c-th single value attribute */
+	public int getSVCardinality(final int c)
+	{
+		return svValues[c].length;
+	}
+
+	/** number of values of the c-th multi value attribute */
+	public int getMVCardinality(final int c)
+	{
+		return mvValues[c].length;
+	}
+
+	/** the values of the c-th single value attribute, sorted (not to be modified) */
+	public int[] getSVValues(final int c)
+	{
+		return svValues[c];
+	}
+
+	/** the number of rows having each value of {@link #getSVValues(int)} (not to be modified) */
+	public int[] getSVFrequencies(final int c)
+	{
+		return svFrequencies[c];
+	}
+
+	/** the values of the c-th multi value attribute, sorted (not to be modified) */
+	public int[] getMVValues(final int c)
+	{
+		return mvValues[c];
+	}
+
+	/** the number of rows having each value of {@link #getMVValues(int)} (not to be modified) */
+	public int[] getMVFrequencies(final int c)
+	{
+		return mvFrequencies[c];
+	}
+
+	/** the number of rows having k values of the c-th multi value attribute, for each k up to the greatest one (not to be modified) */
+	public int[] getMVSizes(final int c)
+	{
+		return mvSizes[c];
+	}
+}
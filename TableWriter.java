@@ -0,0 +1,161 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import gnu.trove.map.hash.TObjectDoubleHashMap;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+
+/**
+ * Streaming writer of tables to files: the rows are encoded one at a time, as ASCII bytes, into a reusable buffer
+ * written to the file channel whenever it is full, so that the memory taken does not depend on the size of the table
+ * and the table is never built as a string.
+ * The rows of a {@link Table} are written as by {@link Table#toString()}, the output table of the {@link Solver} as the map of its transactions
+ * (lists of items) to their duplicates was printed by Trove, e.g. {{1, 2, 3}=2.0,{4, 5}=1.0}.
+ */
+public class TableWriter
+{
+	private static final int BUFFER_BYTES = 1 << 16;
+
+	private final FileOutputStream file;
+	private final FileChannel channel;
+	private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+	/** the digits of an integer, in reverse order */
+	private final byte[] digits = new byte[11];
+
+	public TableWriter(final String fileName) throws IOException
+	{
+		file = new FileOutputStream(fileName);
+		channel = file.getChannel();
+	}
+
+	/** writes the rows of the table to the file (see {@link Table#toString()}) */
+	public static void write(final Table table, final String fileName) throws IOException
+	{
+		final TableWriter writer = new TableWriter(fileName);
+
+		try
+		{
+			table.write(writer);
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/** writes the transactions of the output table with their number of duplicates to the file, as {{item, item, ...}=duplicates,...} */
+	public static void write(final TObjectDoubleHashMap<Itemset> outputTable, final String fileName) throws IOException
+	{
+		final TableWriter writer = new TableWriter(fileName);
+
+		try
+		{
+			boolean first = true;
+			writer.write('{');
+
+			for(final Itemset transaction : outputTable.keySet())
+			{
+				if(first)
+					first = false;
+				else
+					writer.write(',');
+
+				writer.write('{');
+
+				final Itemset.Cursor cursor = transaction.cursor();
+
+				for(boolean firstItem = true; cursor.hasNext(); firstItem = false)
+				{
+					if(!firstItem)
+						writer.write(", ");
+
+					writer.write(cursor.next());
+				}
+
+				writer.write('}');
+				writer.write('=');
+				writer.write(Double.toString(outputTable.get(transaction)));
+			}
+
+			writer.write('}');
+		}
+		finally
+		{
+			writer.close();
+		}
+	}
+
+	/** writes an ASCII character */
+	public void write(final char c) throws IOException
+	{
+		if(!buffer.hasRemaining())
+			flush();
+
+		buffer.put((byte) c);
+	}
+
+	/** writes the decimal digits of the integer */
+	public void write(final int value) throws IOException
+	{
+		if(buffer.remaining() < digits.length)
+			flush();
+
+		if(value == Integer.MIN_VALUE)
+		{
+			write(Integer.toString(value));
+			return;
+		}
+
+		if(value < 0)
+			buffer.put((byte) '-');
+
+		int v = Math.abs(value);
+		int n = 0;
+
+		do
+		{
+			digits[n++] = (byte) ('0' + v % 10);
+			v /= 10;
+		}
+		while(v > 0);
+
+		while(n > 0)
+			buffer.put(digits[--n]);
+	}
+
+	/** writes a string of ASCII characters */
+	public void write(final String s) throws IOException
+	{
+		for(int i=0; i<s.length(); i++)
+			write(s.charAt(i));
+	}
+
+	private void flush() throws IOException
+	{
+		buffer.flip();
+
+		while(buffer.hasRemaining())
+			channel.write(buffer);
+
+		buffer.clear();
+	}
+
+	public void close() throws IOException
+	{
+		try
+		{
+			flush();
+		}
+		finally
+		{
+			file.close();
+		}
+	}
+}
@@ -0,0 +1,316 @@
+/**
+ * @author Antonino Rullo, Domenico Saccà, University of Calabria, 2018.
+ * @author Edoardo Serra, Boise State University, 2018
+ * @copyright GNU General Public License v3
+ * No reproduction in whole or part without maintaining this copyright notice
+ * and imposing this condition on any subsequent users.
+ */
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The transactions mined by {@link Apriori}, {@link Eclat} and {@link FPGrowth}:
+ * each transaction is the sorted array (without duplicates) of the items of a row.
+ * Transactions are either read from a transaction file (integers separated by spaces, one transaction by line),
+ * or built directly from the rows of a {@link Table} or of an input table file (see {@link #readTable(BufferedReader, boolean[], int)}).
+ * In the latter cases the schema of the table is known, so that the miners can skip the itemsets 
+ * containing two values of the same single value attribute, whose support is 0 by construction;
+ * the transactions of a whole table also know the support of each item (see {@link TableStatistics}), so that the miners do not count the single items.
+ */
+public class Transactions
+{
+	private final int[][] transactions;
+	/** number of different items, i.e. the greatest item + 1 */
+	private final int numItems;
+	/** 
+	 * singleValueAttribute[i] is the index of the single value attribute the item i belongs to, 
+	 * or a negative value if i is not a value of exactly one single value attribute (null if the schema is unknown)
+	 */
+	private final int[] singleValueAttribute;
+	/** itemSupports[i] is the number of transactions containing the item i (null if not known) */
+	private final int[] itemSupports;
+	
+	private static final int UNSEEN = TableStatistics.UNSEEN;
+	private static final int NOT_SINGLE_VALUE = TableStatistics.NOT_SINGLE_VALUE;
+
+	public Transactions(final int[][] transactions)
+	{
+		this(transactions, null);
+	}
+
+	public Transactions(final int[][] transactions, final int[] singleValueAttribute)
+	{
+		this(transactions, singleValueAttribute, null);
+	}
+
+	public Transactions(final int[][] transactions, final int[] singleValueAttribute, final int[] itemSupports)
+	{
+		this.transactions = transactions;
+		this.singleValueAttribute = singleValueAttribute;
+		this.itemSupports = itemSupports;
+
+		int max = -1;
+
+		for(final int[] transaction : transactions)
+			if(transaction.length > 0 && transaction[transaction.length-1] > max)
+				max = transaction[transaction.length-1];
+
+		numItems = max+1;
+	}
+
+	/** reads the transactions from a transaction file, skipping the empty lines */
+	public static Transactions read(final String transactionsFile) throws IOException
+	{
+		final List<int[]> transactions = new ArrayList<int[]>();
+		final BufferedReader reader = new BufferedReader(new FileReader(transactionsFile));
+		String line;
+
+		while((line = reader.readLine()) != null)
+		{
+			if(line.matches("\\s*")) continue; // be friendly with empty lines
+
+			final StringTokenizer st = new StringTokenizer(line, " ");
+			final int[] items = new int[st.countTokens()];
+			int n = 0;
+
+			while(st.hasMoreTokens())
+				items[n++] = Integer.parseInt(st.nextToken());
+
+			transactions.add(toSortedSet(items, n));
+		}
+
+		reader.close();
+
+		return new Transactions(transactions.toArray(new int[0][]));
+	}
+
+	/**
+	 * reads the next rows (at most maxRows) of an input table, i.e. one row per line with the values of the attributes separated by ';'
+	 * and the values of a multi value attribute separated by spaces, as transactions; no transaction is returned at the end of the input
+	 *
+	 * @param singleValue singleValue[c] is true if the c-th attribute of the table is single value
+	 */
+	public static Transactions readTable(final BufferedReader reader, final boolean[] singleValue, final int maxRows) throws IOException
+	{
+		final List<int[]> transactions = new ArrayList<int[]>();
+		int[] items = new int[Math.max(16, singleValue.length)];
+		int[] attribute = new int[16];
+		Arrays.fill(attribute, UNSEEN);
+		String line;
+
+		while(transactions.size() < maxRows && (line = reader.readLine()) != null)
+		{
+			if(line.matches("\\s*")) continue; // be friendly with empty lines
+
+			final StringTokenizer st = new StringTokenizer(line, ";");
+			int n = 0;
+
+			for(int c=0; st.hasMoreTokens(); c++)
+			{
+				final StringTokenizer values = new StringTokenizer(st.nextToken(), " ");
+
+				while(values.hasMoreTokens())
+				{
+					final int i = Integer.parseInt(values.nextToken());
+					attribute = setAttribute(attribute, i, singleValue[c] ? c : NOT_SINGLE_VALUE);
+
+					if(n == items.length)
+						items = Arrays.copyOf(items, 2*items.length);
+
+					items[n++] = i;
+				}
+			}
+
+			transactions.add(toSortedSet(items, n));
+		}
+
+		return new Transactions(transactions.toArray(new int[0][]), attribute);
+	}
+
+	/** 
+	 * builds a transaction for each row of the table, made of the values of its single value and multi value attributes;
+	 * the attributes and the supports of the items are the ones of the statistics of the table
+	 */
+	public static Transactions fromTable(final Table table)
+	{
+		final TableStatistics statistics = table.getStatistics();
+		final int[][] transactions = new int[table.getSize()][];
+		int[] items = new int[table.getNumberOfSVAttributes()];
+
+		for(int row=0; row<transactions.length; row++)
+		{
+			int n = 0;
+
+			for(int c=0; c<table.getNumberOfSVAttributes(); c++)
+				items[n++] = table.getSVValue(c, row);
+
+			for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+			{
+				final int size = table.getMVSize(c, row);
+
+				if(n+size > items.length)
+					items = Arrays.copyOf(items, Math.max(2*items.length, n+size));
+
+				for(int k=0; k<size; k++)
+					items[n++] = table.getMVValue(c, row, k);
+			}
+
+			transactions[row] = toSortedSet(items, n);
+		}
+
+		return new Transactions(transactions, statistics.getSingleValueAttributes(), statistics.getSupports());
+	}
+
+	/** builds a transaction for each row of the table starting from firstRow (e.g. the rows appended after a previous run) */
+	public static Transactions fromTable(final Table table, final int firstRow)
+	{
+		final int[][] transactions = new int[table.getSize()-firstRow][];
+		int[] items = new int[table.getNumberOfSVAttributes()];
+		int[] attribute = new int[16];
+		Arrays.fill(attribute, UNSEEN);
+
+		for(int row=0; row<transactions.length; row++)
+		{
+			int n = 0;
+
+			for(int c=0; c<table.getNumberOfSVAttributes(); c++)
+			{
+				final int i = table.getSVValue(c, firstRow+row);
+				attribute = setAttribute(attribute, i, c);
+				items[n++] = i;
+			}
+
+			for(int c=0; c<table.getNumberOfMVAttribute(); c++)
+			{
+				final int size = table.getMVSize(c, firstRow+row);
+
+				if(n+size > items.length)
+					items = Arrays.copyOf(items, Math.max(2*items.length, n+size));
+
+				for(int k=0; k<size; k++)
+				{
+					final int i = table.getMVValue(c, firstRow+row, k);
+					attribute = setAttribute(attribute, i, NOT_SINGLE_VALUE);
+					items[n++] = i;
+				}
+			}
+
+			transactions[row] = toSortedSet(items, n);
+		}
+
+		return new Transactions(transactions, attribute);
+	}
+
+	/** records that item is a value of the attribute (a value of different attributes is marked as NOT_SINGLE_VALUE) */
+	private static int[] setAttribute(int[] attribute, final int item, final int value)
+	{
+		Table.checkValue(item);
+
+		if(item >= attribute.length)
+		{
+			final int length = attribute.length;
+			attribute = Arrays.copyOf(attribute, Math.max(2*length, item+1));
+			Arrays.fill(attribute, length, attribute.length, UNSEEN);
+		}
+
+		if(attribute[item] == UNSEEN)
+			attribute[item] = value;
+		else
+			if(attribute[item] != value)
+				attribute[item] = NOT_SINGLE_VALUE;
+
+		return attribute;
+	}
+
+	/** returns the first n items, sorted and without duplicates */
+	private static int[] toSortedSet(final int[] items, final int n)
+	{
+		final int[] set = Arrays.copyOf(items, n);
+		Arrays.sort(set);
+
+		int size = 0;
+
+		for(int i=0; i<n; i++)
+			if(size == 0 || set[size-1] != set[i])
+				set[size++] = set[i];
+
+		return size == n ? set : Arrays.copyOf(set, size);
+	}
+
+	/** returns size transactions drawn uniformly at random without replacement (all of them if size is not smaller than the number of transactions) */
+	public Transactions sample(final int size, final Random random)
+	{
+		if(size >= transactions.length)
+			return this;
+
+		// partial Fisher-Yates shuffle of the indexes of the transactions
+		final int[] indexes = new int[transactions.length];
+
+		for(int i=0; i<indexes.length; i++)
+			indexes[i] = i;
+
+		final int[][] sample = new int[size][];
+
+		for(int i=0; i<size; i++)
+		{
+			final int j = i + random.nextInt(indexes.length-i);
+			final int swap = indexes[i];
+			indexes[i] = indexes[j];
+			indexes[j] = swap;
+
+			sample[i] = transactions[indexes[i]];
+		}
+
+		return new Transactions(sample, singleValueAttribute);
+	}
+
+	/** returns the transactions followed by the ones of other */
+	public Transactions append(final Transactions other)
+	{
+		final int[][] all = Arrays.copyOf(transactions, transactions.length + other.transactions.length);
+		System.arraycopy(other.transactions, 0, all, transactions.length, other.transactions.length);
+
+		if(singleValueAttribute == null || other.singleValueAttribute == null)
+			return new Transactions(all);
+
+		int[] attribute = singleValueAttribute.clone();
+
+		for(int i=0; i<other.singleValueAttribute.length; i++)
+			if(other.singleValueAttribute[i] != UNSEEN)
+				attribute = setAttribute(attribute, i, other.singleValueAttribute[i]);
+
+		return new Transactions(all, attribute);
+	}
+
+	public int[] get(final int index)
+	{
+		return transactions[index];
+	}
+
+	/** number of transactions */
+	public int size()
+	{
+		return transactions.length;
+	}
+
+	public int getNumItems()
+	{
+		return numItems;
+	}
+
+	/** the number of transactions containing each item, at least numItems long (null if not known, not to be modified) */
+	public int[] getItemSupports()
+	{
+		return itemSupports;
+	}
+
+	/** true if the items i and j are values of the same single value attribute, i.e. no transaction can contain both of them */
+	public boolean sameSingleValueAttribute(final int i, final int j)
+	{
+		if(singleValueAttribute == null || i >= singleValueAttribute.length || j >= singleValueAttribute.length)
+			return false;
+
+		return singleValueAttribute[i] >= 0 && singleValueAttribute[i] == singleValueAttribute[j];
+	}
+}